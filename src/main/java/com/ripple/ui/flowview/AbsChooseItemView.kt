@@ -1,15 +1,16 @@
 package com.ripple.ui.flowview
 
 import android.content.Context
-import android.graphics.Color
 import android.util.AttributeSet
 import android.view.LayoutInflater
 import android.widget.FrameLayout
 import android.widget.RelativeLayout
 import com.ripple.tool.density.dp2px
 import com.ripple.ui.R
+import com.ripple.ui.flowview.IChooseBindableItemView
 import com.ripple.ui.flowview.IChooseItemView
 import com.ripple.ui.flowview.IChooseModel
+import com.ripple.ui.flowview.impl.ChooseItemStyleHolder
 import kotlinx.android.synthetic.main.item_choose_view_layout.view.*
 
 
@@ -28,24 +29,53 @@ abstract class AbsChooseItemView @JvmOverloads constructor(
     private var mContext: Context,
     attrs: AttributeSet? = null,
     defStyleAttr: Int = 0
-) : FrameLayout(mContext, attrs, defStyleAttr), IChooseItemView {
+) : FrameLayout(mContext, attrs, defStyleAttr), IChooseBindableItemView {
 
     private var mChecked = false
     private var mCheckable = true
 
+    /**
+     * 背景和字体颜色，只在变化后设置一次
+     */
+    private val styleHolder = ChooseItemStyleHolder()
+
     /**
      * 标签背景的三种状态
      */
-    open var chooseViewUnselectable = R.drawable.choose_view_unselectable
-    open var chooseViewSelected = R.drawable.choose_view_selected
-    open var chooseViewUnselected = R.drawable.choose_view_unselected
+    open var chooseViewUnselectable: Int
+        get() = styleHolder.chooseViewUnselectable
+        set(value) {
+            styleHolder.chooseViewUnselectable = value
+        }
+    open var chooseViewSelected: Int
+        get() = styleHolder.chooseViewSelected
+        set(value) {
+            styleHolder.chooseViewSelected = value
+        }
+    open var chooseViewUnselected: Int
+        get() = styleHolder.chooseViewUnselected
+        set(value) {
+            styleHolder.chooseViewUnselected = value
+        }
 
     /**
      * 标签内部字体的三种颜色
      */
-    open var unselectableTagColor = Color.parseColor("#cccccc")
-    open var selectedTagColor = Color.parseColor("#ff680a")
-    open var unselectedTagColor = Color.BLACK
+    open var unselectableTagColor: Int
+        get() = styleHolder.unselectableTagColor
+        set(value) {
+            styleHolder.unselectableTagColor = value
+        }
+    open var selectedTagColor: Int
+        get() = styleHolder.selectedTagColor
+        set(value) {
+            styleHolder.selectedTagColor = value
+        }
+    open var unselectedTagColor: Int
+        get() = styleHolder.unselectedTagColor
+        set(value) {
+            styleHolder.unselectedTagColor = value
+        }
 
     init {
         initView()
@@ -53,7 +83,7 @@ abstract class AbsChooseItemView @JvmOverloads constructor(
 
     fun initView() {
         LayoutInflater.from(mContext).inflate(R.layout.item_choose_view_layout, this)
-        rippleChooseItemView.setBackgroundResource(chooseViewUnselected)
+        refreshDrawableState()
     }
 
     fun <T : AbsChooseItemView> updateStatus(newItemView: T) {
@@ -69,15 +99,43 @@ abstract class AbsChooseItemView @JvmOverloads constructor(
         this.selectedTagColor = newItemView.selectedTagColor
     }
 
+    override fun updateStatusFrom(newItemView: IChooseItemView) {
+        if (newItemView is AbsChooseItemView) {
+            updateStatus(newItemView)
+        }
+    }
 
-    fun <T : IChooseModel> initData(model: T) {
+    override fun <T : IChooseModel> initData(model: T) {
         rippleChooseItemView.text = model.getChooseItemTitle()
         setCheckable(model.getChooseItemCheckable())
         setChecked(model.getChooseItemChecked())
     }
 
+    override fun isOutdated(model: IChooseModel): Boolean {
+        return mCheckable != model.getChooseItemCheckable()
+                || isChecked() != model.getChooseItemChecked()
+                || rippleChooseItemView.text.toString() != model.getChooseItemTitle()
+    }
+
     fun getChooseItemView() = getChildAt(0)
 
+    /**
+     * 设置共享的样式，和当前样式相同时不做处理
+     */
+    override fun applyStyle(style: ChooseItemStyle) {
+        if (styleHolder.isStyleApplied(style)) return
+        setInnerTagLayoutParams(RelativeLayout.LayoutParams(style.tagWidth, style.tagHeight))
+        setInnerTagPadding(
+            style.tagPaddingLeft,
+            style.tagPaddingTop,
+            style.tagPaddingRight,
+            style.tagPaddingBottom
+        )
+        styleHolder.applyStyle(style, rippleChooseItemView, rippleChooseItemView)
+    }
+
+    fun getItemStyle() = styleHolder.itemStyle
+
     /**
      * 是否可点击
      */
@@ -90,10 +148,8 @@ abstract class AbsChooseItemView @JvmOverloads constructor(
      */
     override fun setCheckable(isCheckable: Boolean) {
         mCheckable = isCheckable
-        if (!mCheckable) {
-            rippleChooseItemView.setBackgroundResource(chooseViewUnselectable)
-            rippleChooseItemView.setTextColor(unselectableTagColor)
-        }
+        applyStyleIfNeeded()
+        refreshDrawableState()
     }
 
     /**
@@ -113,17 +169,27 @@ abstract class AbsChooseItemView @JvmOverloads constructor(
     override fun setChecked(isChecked: Boolean) {
         if (mCheckable) {
             mChecked = isChecked
-            if (mChecked) {
-                rippleChooseItemView.setBackgroundResource(chooseViewSelected)
-                rippleChooseItemView.setTextColor(selectedTagColor)
-            } else {
-                rippleChooseItemView.setBackgroundResource(chooseViewUnselected)
-                rippleChooseItemView.setTextColor(unselectedTagColor)
-            }
-        } else {
-            rippleChooseItemView.setBackgroundResource(chooseViewUnselectable)
-            rippleChooseItemView.setTextColor(unselectableTagColor)
         }
+        applyStyleIfNeeded()
+        refreshDrawableState()
+    }
+
+    /**
+     * 可选和选中通过drawable state表示，背景和字体颜色随状态自动切换
+     */
+    override fun onCreateDrawableState(extraSpace: Int): IntArray {
+        val drawableState =
+            super.onCreateDrawableState(extraSpace + ChooseItemStyleHolder.EXTRA_STATE_SPACE)
+        return ChooseItemStyleHolder.mergeCheckStates(drawableState, mCheckable, isChecked())
+    }
+
+    override fun onAttachedToWindow() {
+        super.onAttachedToWindow()
+        applyStyleIfNeeded()
+    }
+
+    private fun applyStyleIfNeeded() {
+        styleHolder.applyIfNeeded(rippleChooseItemView, rippleChooseItemView)
     }
 
     /**
@@ -139,6 +205,7 @@ abstract class AbsChooseItemView @JvmOverloads constructor(
      * 设置内部标签LayoutParams
      */
     fun setInnerTagLayoutParams(layoutParams: RelativeLayout.LayoutParams) {
+        styleHolder.clearItemStyle()
         rippleChooseItemView.layoutParams = layoutParams
     }
 
@@ -173,6 +240,7 @@ abstract class AbsChooseItemView @JvmOverloads constructor(
      * 左上右下
      */
     fun setInnerTagPadding(left: Int, top: Int, right: Int, bottom: Int) {
+        styleHolder.clearItemStyle()
         rippleChooseItemView.setPadding(left, top, right, bottom)
     }
 
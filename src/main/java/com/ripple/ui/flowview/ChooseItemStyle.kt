@@ -0,0 +1,54 @@
+package com.ripple.ui.flowview
+
+import android.graphics.Color
+import android.view.ViewGroup
+import com.ripple.tool.density.dp2px
+import com.ripple.ui.R
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/16 10:15
+ * Email: fanyafeng@live.cn
+ * Description: 标签样式
+ *
+ * 不可变，可以被多个标签以及多个ChooseFlowView共享
+ * 标签通过[com.ripple.ui.flowview.impl.ChooseItemView.applyStyle]和[com.ripple.ui.flowview.impl.ChooseTagView.applyStyle]使用，
+ * 同一个样式重复设置不会有任何操作
+ * 需要修改时通过copy创建新的样式
+ */
+data class ChooseItemStyle @JvmOverloads constructor(
+    /**
+     * 标签背景的三种状态
+     */
+    val unselectableBackground: Int = R.drawable.choose_view_unselectable,
+    val selectedBackground: Int = R.drawable.choose_view_selected,
+    val unselectedBackground: Int = R.drawable.choose_view_unselected,
+    /**
+     * 标签字体的三种颜色
+     */
+    val unselectableTextColor: Int = Color.parseColor("#cccccc"),
+    val selectedTextColor: Int = Color.parseColor("#ff680a"),
+    val unselectedTextColor: Int = Color.BLACK,
+    /**
+     * 标签的宽高
+     */
+    val tagWidth: Int = ViewGroup.LayoutParams.WRAP_CONTENT,
+    val tagHeight: Int = 28.dp2px,
+    /**
+     * 标签的padding
+     */
+    val tagPaddingLeft: Int = 12.dp2px,
+    val tagPaddingTop: Int = 0,
+    val tagPaddingRight: Int = 12.dp2px,
+    val tagPaddingBottom: Int = 0
+) {
+
+    companion object {
+        /**
+         * 默认样式，和布局文件中的样式一致
+         */
+        @JvmStatic
+        val DEFAULT by lazy { ChooseItemStyle() }
+    }
+}
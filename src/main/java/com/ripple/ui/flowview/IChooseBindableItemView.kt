@@ -0,0 +1,34 @@
+package com.ripple.ui.flowview
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/21 10:30
+ * Email: fanyafeng@live.cn
+ * Description: 可以由ChooseFlowView直接绑定数据和样式的标签
+ *
+ * 内置的标签都实现了这个接口，自定义的标签实现后和内置标签的行为一致
+ * 没有实现这个接口的[IChooseItemView]只更新可选和选中状态，共享样式不做处理
+ */
+interface IChooseBindableItemView : IChooseItemView {
+
+    /**
+     * 绑定数据，包括标题，可选和选中状态
+     */
+    fun <T : IChooseModel> initData(model: T)
+
+    /**
+     * 设置共享的样式，和当前样式相同时不做处理
+     */
+    fun applyStyle(style: ChooseItemStyle)
+
+    /**
+     * 显示的内容和data model是否不一致，不一致时需要重新绑定
+     */
+    fun isOutdated(model: IChooseModel): Boolean
+
+    /**
+     * 更新数据时将新标签的布局和样式属性赋值到重用的标签上，类型不同时不做处理
+     */
+    fun updateStatusFrom(newItemView: IChooseItemView)
+}
@@ -0,0 +1,18 @@
+package com.ripple.ui.flowview
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/10 15:30
+ * Email: fanyafeng@live.cn
+ * Description: 带唯一标识的流式布局item
+ *
+ * 数据刷新时按照id匹配新旧标签，没有实现这个接口的data model按照标题匹配
+ */
+interface IChooseIdModel : IChooseModel {
+
+    /**
+     * 标签的唯一标识，同一个ChooseFlowView中不能重复
+     */
+    fun getChooseItemId(): String
+}
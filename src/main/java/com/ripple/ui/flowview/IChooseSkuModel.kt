@@ -0,0 +1,26 @@
+package com.ripple.ui.flowview
+
+import java.io.Serializable
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/11 10:10
+ * Email: fanyafeng@live.cn
+ * Description: 多规格选择中的单个sku
+ *
+ * 比如颜色和尺码两组规格，一个sku对应其中一个颜色和一个尺码
+ */
+interface IChooseSkuModel : Serializable {
+
+    /**
+     * sku在每个规格组中对应的规格值
+     * 顺序和规格组的顺序一致，值和规格标签的[IChooseIdModel.getChooseItemId]匹配，没有id时和标题匹配
+     */
+    fun getSkuSpecKeys(): List<String>
+
+    /**
+     * 是否有库存
+     */
+    fun isSkuInStock(): Boolean
+}
@@ -0,0 +1,15 @@
+package com.ripple.ui.flowview
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/11 10:20
+ * Email: fanyafeng@live.cn
+ * Description: 选中列表变化的回调
+ *
+ * 一次操作只回调一次，added和removed为这次操作新增和取消选中的下标
+ */
+interface OnChooseSelectionChangedListener {
+
+    fun onSelectionChanged(chooseFlowView: IChooseFlowView, added: IntArray, removed: IntArray)
+}
@@ -0,0 +1,222 @@
+package com.ripple.ui.flowview.impl
+
+import android.content.Context
+import android.view.View
+import android.view.ViewGroup
+import androidx.recyclerview.widget.RecyclerView
+import com.ripple.tool.kttypelians.OnItemModelClickListener
+import com.ripple.tool.kttypelians.PentaLambda
+import com.ripple.ui.flowview.IChooseFlowView
+import com.ripple.ui.flowview.IChooseModel
+import java.lang.Exception
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/8 16:05
+ * Email: fanyafeng@live.cn
+ * Description: 配合[FlowLayoutManager]使用的标签选择adapter
+ *
+ * 选择规则和回调与[ChooseFlowView]一致：
+ * 1.包含可点击，不可点击，所有点击的回调
+ * 2.最大和最小选取数量，超过最大数量后按照FIFO更新选中列表
+ * 3.只有屏幕内的标签会创建view，适合大量标签
+ */
+open class ChooseFlowAdapter(private val mContext: Context) :
+    RecyclerView.Adapter<ChooseFlowAdapter.ChooseViewHolder>(), IChooseFlowView {
+
+    companion object {
+        /**
+         * 只更新选中态的payload，不重新设置标题
+         * 标签尺寸不变，[FlowLayoutManager]收到这个payload不会重新测量
+         */
+        @JvmField
+        val PAYLOAD_CHECK_STATUS = Any()
+    }
+
+    /**
+     * 可选项的点击回调
+     */
+    var onItemAbleClickListener: OnItemModelClickListener<IChooseModel> = null
+
+    /**
+     * 不可选项的点击回调
+     */
+    var onItemUnableClickListener: OnItemModelClickListener<IChooseModel> = null
+
+    /**
+     * 所有的点击回调
+     * 会有一个标记是否可点击的字段
+     */
+    var onItemClickListener: PentaLambda<View, Int, IChooseModel, Boolean, Boolean> = null
+
+    private var maxCount = 1
+
+    private var minCount = 0
+
+    /**
+     * 选中列表，BitSet判断是否选中，环形数组记录FIFO顺序
+     */
+    private val selectList = ChooseSelectList()
+
+    private var allModelList = arrayListOf<IChooseModel>()
+
+    private var resultList = arrayListOf<IChooseModel>()
+
+    /**
+     * resultList对应的选中列表版本，选中没有变化时直接返回
+     */
+    private var resultVersion = -1
+
+    /**
+     * 设置数据
+     * 会按照最大选取数量校验数据的选中态
+     */
+    open fun setItems(list: List<IChooseModel>) {
+        selectList.clear()
+        resultVersion = -1
+        allModelList.clear()
+        allModelList.addAll(list)
+        allModelList.forEachIndexed { index, model ->
+            if (model.getChooseItemCheckable()) {
+                if (model.getChooseItemChecked()) {
+                    if (selectList.size >= maxCount) {
+                        allModelList[selectList.removeFirst()].setChooseItemChecked(false)
+                    }
+                    selectList.addLast(index)
+                }
+            } else if (model.getChooseItemChecked()) {
+                model.setChooseItemChecked(false)
+            }
+        }
+        notifyDataSetChanged()
+    }
+
+    fun getAllDataList(): List<IChooseModel> = allModelList
+
+    /**
+     * 获取选中的结果
+     */
+    fun getSelectedResult(): List<IChooseModel> {
+        if (resultVersion == selectList.version) {
+            return resultList
+        }
+        resultList.clear()
+        var index = selectList.nextSelected(0)
+        while (index >= 0 && index < allModelList.size) {
+            resultList.add(allModelList[index])
+            index = selectList.nextSelected(index + 1)
+        }
+        resultVersion = selectList.version
+        return resultList
+    }
+
+    /**
+     * 创建单个标签，可以重写进行样式的定制
+     */
+    open fun onCreateItemView(parent: ViewGroup, viewType: Int): ChooseItemView {
+        val itemView = ChooseItemView(mContext)
+        itemView.setInnerTagWrapContent()
+        return itemView
+    }
+
+    override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): ChooseViewHolder {
+        val holder = ChooseViewHolder(onCreateItemView(parent, viewType))
+        holder.itemView.setOnClickListener {
+            val pos = holder.adapterPosition
+            if (pos != RecyclerView.NO_POSITION) {
+                onItemViewClick(it, pos)
+            }
+        }
+        return holder
+    }
+
+    override fun onBindViewHolder(holder: ChooseViewHolder, position: Int) {
+        holder.chooseItemView.initData(allModelList[position])
+    }
+
+    override fun onBindViewHolder(holder: ChooseViewHolder, position: Int, payloads: List<Any>) {
+        if (payloads.contains(PAYLOAD_CHECK_STATUS)) {
+            val model = allModelList[position]
+            holder.chooseItemView.setCheckable(model.getChooseItemCheckable())
+            holder.chooseItemView.setChecked(model.getChooseItemChecked())
+        } else {
+            onBindViewHolder(holder, position)
+        }
+    }
+
+    override fun getItemCount(): Int {
+        return allModelList.size
+    }
+
+    private fun onItemViewClick(view: View, pos: Int) {
+        val model = allModelList[pos]
+
+        val isCheckable: Boolean
+
+        /**
+         * 小于最小数量想取消选中但是不可以
+         * 标记为重复选取，不相应操作
+         */
+        var checkRepeat = true
+
+        if (model.getChooseItemCheckable()) {
+            isCheckable = true
+            val mCount = selectList.size
+            if (model.getChooseItemChecked()) {
+                //取消选中
+                if (mCount <= minCount) {
+                    //当用户选取数量小于最小数量时不允许取消选中
+                    checkRepeat = false
+                } else {
+                    selectList.remove(pos)
+                    setItemCheckStatus(pos, false)
+                }
+            } else {
+                if (mCount >= maxCount) {
+                    //取消第一个加入最后一个
+                    setItemCheckStatus(selectList.removeFirst(), false)
+                }
+                selectList.addLast(pos)
+                setItemCheckStatus(pos, true)
+            }
+            onItemAbleClickListener?.invoke(view, pos, model)
+        } else {
+            isCheckable = false
+            onItemUnableClickListener?.invoke(view, pos, model)
+        }
+
+        onItemClickListener?.invoke(view, pos, model, isCheckable, checkRepeat)
+    }
+
+    /**
+     * 更新data model的选中状态，只刷新这一个标签的选中态
+     */
+    private fun setItemCheckStatus(position: Int, isChecked: Boolean) {
+        allModelList[position].setChooseItemChecked(isChecked)
+        notifyItemChanged(position, PAYLOAD_CHECK_STATUS)
+    }
+
+    override fun setMaxChooseCount(maxCount: Int) {
+        if (maxCount < minCount)
+            throw Exception("最大选取数量不可以小于最小选取数量")
+        this.maxCount = maxCount
+    }
+
+    override fun getMaxChooseCount(): Int {
+        return maxCount
+    }
+
+    override fun getMinChooseCount(): Int {
+        return minCount
+    }
+
+    override fun setMinChooseCount(minCount: Int) {
+        if (maxCount < minCount)
+            throw Exception("最大选取数量不可以小于最小选取数量")
+        this.minCount = minCount
+    }
+
+    class ChooseViewHolder(val chooseItemView: ChooseItemView) :
+        RecyclerView.ViewHolder(chooseItemView)
+}
@@ -0,0 +1,145 @@
+package com.ripple.ui.flowview.impl
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/10 15:40
+ * Email: fanyafeng@live.cn
+ * Description: 按照唯一标识计算新旧标签列表的差异
+ *
+ * 1.通过HashMap按key匹配新旧数据，得到删除，新增和保留的标签
+ * 2.保留的标签中找出按新下标递增的最长子序列，这部分的view不需要移动
+ * 3.其余保留的标签只需要移动，不需要重新绑定
+ *
+ * 和DiffUtil相比不需要逐个比较，开销为O(n log n)
+ */
+class ChooseFlowDiff {
+
+    companion object {
+        const val NO_POSITION = -1
+    }
+
+    private var oldToNew = IntArray(0)
+
+    private var newToOld = IntArray(0)
+
+    /**
+     * 按新下标标记不需要移动的标签
+     */
+    private var stable = BooleanArray(0)
+
+    private var removedCount = 0
+
+    private var insertedCount = 0
+
+    private var movedCount = 0
+
+    private var duplicateKeyCount = 0
+
+    /**
+     * 计算差异，重复的key只有第一个会被匹配，其余按删除和新增处理
+     * 重复的个数通过[getDuplicateKeyCount]获取
+     */
+    fun calculate(oldKeys: List<Any>, newKeys: List<Any>) {
+        val oldCount = oldKeys.size
+        val newCount = newKeys.size
+        oldToNew = IntArray(oldCount) { NO_POSITION }
+        newToOld = IntArray(newCount) { NO_POSITION }
+        stable = BooleanArray(newCount)
+
+        duplicateKeyCount = 0
+        val oldIndexMap = HashMap<Any, Int>(oldCount * 2)
+        for (index in oldCount - 1 downTo 0) {
+            if (oldIndexMap.put(oldKeys[index], index) != null) {
+                duplicateKeyCount++
+            }
+        }
+        val newKeySet = HashSet<Any>(newCount * 2)
+        var matchedCount = 0
+        for (index in 0 until newCount) {
+            val key = newKeys[index]
+            if (!newKeySet.add(key)) {
+                duplicateKeyCount++
+            }
+            val oldIndex = oldIndexMap.remove(key) ?: continue
+            oldToNew[oldIndex] = index
+            newToOld[index] = oldIndex
+            matchedCount++
+        }
+        removedCount = oldCount - matchedCount
+        insertedCount = newCount - matchedCount
+
+        //保留的标签按旧的顺序排列后对应的新下标
+        val sequence = IntArray(matchedCount)
+        var size = 0
+        for (oldIndex in 0 until oldCount) {
+            if (oldToNew[oldIndex] != NO_POSITION) {
+                sequence[size++] = oldToNew[oldIndex]
+            }
+        }
+        val keepCount = markLongestIncreasing(sequence)
+        movedCount = matchedCount - keepCount
+    }
+
+    /**
+     * 旧下标对应的新下标，被删除的返回[NO_POSITION]
+     */
+    fun convertOldPositionToNew(oldPosition: Int) = oldToNew[oldPosition]
+
+    /**
+     * 新下标对应的旧下标，新增的返回[NO_POSITION]
+     */
+    fun convertNewPositionToOld(newPosition: Int) = newToOld[newPosition]
+
+    /**
+     * 新下标的标签是否可以原地保留
+     */
+    fun isStable(newPosition: Int) = stable[newPosition]
+
+    fun getRemovedCount() = removedCount
+
+    fun getInsertedCount() = insertedCount
+
+    fun getMovedCount() = movedCount
+
+    /**
+     * 新旧列表中和前面重复的key的个数，大于0说明id不唯一
+     */
+    fun getDuplicateKeyCount() = duplicateKeyCount
+
+    /**
+     * 最长递增子序列，找到的元素在[stable]中标记
+     */
+    private fun markLongestIncreasing(sequence: IntArray): Int {
+        val count = sequence.size
+        if (count == 0) return 0
+        //tails[k]为长度k+1的递增子序列末尾元素在sequence中的下标
+        val tails = IntArray(count)
+        val previous = IntArray(count)
+        var length = 0
+        for (index in 0 until count) {
+            val value = sequence[index]
+            var low = 0
+            var high = length
+            while (low < high) {
+                val mid = (low + high) ushr 1
+                if (sequence[tails[mid]] < value) {
+                    low = mid + 1
+                } else {
+                    high = mid
+                }
+            }
+            previous[index] = if (low > 0) tails[low - 1] else NO_POSITION
+            tails[low] = index
+            if (low == length) {
+                length++
+            }
+        }
+        var index = tails[length - 1]
+        while (index != NO_POSITION) {
+            stable[sequence[index]] = true
+            index = previous[index]
+        }
+        return length
+    }
+}
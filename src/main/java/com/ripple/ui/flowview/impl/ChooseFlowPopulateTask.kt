@@ -0,0 +1,145 @@
+package com.ripple.ui.flowview.impl
+
+import android.view.Choreographer
+import android.view.View
+import android.view.ViewGroup
+import com.ripple.ui.flowview.IChooseItemView
+import com.ripple.ui.flowview.IChooseModel
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/9 11:20
+ * Email: fanyafeng@live.cn
+ * Description: 分帧填充[ChooseFlowView]
+ *
+ * 大量标签一次性创建会卡住主线程好几帧
+ * 1.首屏能显示下的标签同步创建并添加
+ * 2.剩下的标签通过Choreographer在之后的每一帧里按时间预算创建，每帧只请求一次布局
+ * 3.全部添加完成后回调，view被复用时可以取消
+ */
+class ChooseFlowPopulateTask<T> internal constructor(
+    private val chooseFlowView: ChooseFlowView,
+    private val models: List<IChooseModel>,
+    private val itemViewCreator: (Int, IChooseModel) -> T,
+    private val frameBudgetNanos: Long,
+    private val onComplete: (() -> Unit)?
+) : Choreographer.FrameCallback where T : View, T : IChooseItemView {
+
+    private var nextIndex = 0
+
+    private var cancelled = false
+
+    private var finished = false
+
+    private val batch = arrayListOf<Pair<IChooseModel, T>>()
+
+    internal fun start() {
+        if (models.isEmpty()) {
+            finish()
+            return
+        }
+        addFirstScreen()
+        if (nextIndex < models.size) {
+            Choreographer.getInstance().postFrameCallback(this)
+        } else {
+            finish()
+        }
+    }
+
+    override fun doFrame(frameTimeNanos: Long) {
+        if (cancelled) return
+        val startTime = System.nanoTime()
+        do {
+            batch.add(createItem(nextIndex))
+            nextIndex++
+        } while (nextIndex < models.size && System.nanoTime() - startTime < frameBudgetNanos)
+        flushBatch()
+
+        if (nextIndex < models.size) {
+            Choreographer.getInstance().postFrameCallback(this)
+        } else {
+            finish()
+        }
+    }
+
+    /**
+     * 取消剩余标签的添加，已经添加的保留
+     */
+    fun cancel() {
+        if (cancelled || finished) return
+        cancelled = true
+        Choreographer.getInstance().removeFrameCallback(this)
+        batch.clear()
+    }
+
+    /**
+     * 立即同步添加剩余的标签，之后再单个添加的标签才能保证顺序在后面
+     */
+    internal fun finishNow() {
+        if (cancelled || finished) return
+        Choreographer.getInstance().removeFrameCallback(this)
+        while (nextIndex < models.size) {
+            batch.add(createItem(nextIndex))
+            nextIndex++
+        }
+        flushBatch()
+        finish()
+    }
+
+    fun isCancelled() = cancelled
+
+    fun isFinished() = finished
+
+    /**
+     * 已经添加的标签数量
+     */
+    fun getAddedCount() = nextIndex
+
+    /**
+     * 按照标签面积累加估算首屏能显示多少标签
+     */
+    private fun addFirstScreen() {
+        val displayMetrics = chooseFlowView.resources.displayMetrics
+        val visibleWidth =
+            if (chooseFlowView.width > 0) chooseFlowView.width else displayMetrics.widthPixels
+        val visibleHeight =
+            if (chooseFlowView.height > 0) chooseFlowView.height else displayMetrics.heightPixels
+        val targetArea = visibleWidth.toLong() * visibleHeight
+        val unspecified = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED)
+
+        var area = 0L
+        while (nextIndex < models.size && area < targetArea) {
+            val item = createItem(nextIndex)
+            val itemView = item.second
+            itemView.measure(unspecified, unspecified)
+            var itemWidth = itemView.measuredWidth
+            var itemHeight = itemView.measuredHeight
+            val lp = itemView.layoutParams
+            if (lp is ViewGroup.MarginLayoutParams) {
+                itemWidth += lp.leftMargin + lp.rightMargin
+                itemHeight += lp.topMargin + lp.bottomMargin
+            }
+            area += itemWidth.toLong() * itemHeight
+            batch.add(item)
+            nextIndex++
+        }
+        flushBatch()
+    }
+
+    private fun createItem(index: Int): Pair<IChooseModel, T> {
+        val model = models[index]
+        return Pair(model, itemViewCreator(index, model))
+    }
+
+    private fun flushBatch() {
+        chooseFlowView.addItemViews(batch)
+        batch.clear()
+    }
+
+    private fun finish() {
+        finished = true
+        chooseFlowView.onPopulateTaskFinished(this)
+        onComplete?.invoke()
+    }
+}
@@ -1,18 +1,29 @@
 package com.ripple.ui.flowview.impl
 
 import android.content.Context
+import android.os.Parcel
+import android.os.Parcelable
 import android.util.AttributeSet
+import android.util.Log
 import android.view.View
+import android.widget.TextView
 import android.widget.Checkable
 import com.ripple.tool.kttypelians.OnItemModelClickListener
 import com.ripple.tool.kttypelians.PentaLambda
 import com.ripple.tool.kttypelians.QuadraLambda
 import com.ripple.tool.kttypelians.TripleLambda
+import com.ripple.ui.flowview.ChooseItemStyle
+import com.ripple.ui.flowview.IChooseBindableItemView
 import com.ripple.ui.flowview.IChooseFlowView
+import com.ripple.ui.flowview.IChooseIdModel
 import com.ripple.ui.flowview.IChooseItemView
 import com.ripple.ui.flowview.IChooseModel
+import com.ripple.ui.flowview.OnChooseSelectionChangedListener
+import com.ripple.ui.widget.RippleViewPool
+import com.ripple.ui.widget.RippleViewWarmup
 import java.lang.Exception
-import java.util.*
+import java.util.BitSet
+import java.util.concurrent.TimeUnit
 
 
 /**
@@ -35,6 +46,74 @@ class ChooseFlowView @JvmOverloads constructor(
 ) :
     FlowView(mContext, attrs, defStyleAttr), IChooseFlowView {
 
+    companion object {
+        /**
+         * 分帧填充时每一帧创建标签的默认时间预算
+         */
+        const val DEFAULT_FRAME_BUDGET_MS = 4L
+
+        private val EMPTY_POSITIONS = IntArray(0)
+
+        private val TAG = ChooseFlowView::class.java.simpleName
+
+        /**
+         * 空闲时预先创建count个[ChooseItemView]，配合[setItemViewPool]使用
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun warmupItemViews(
+            warmup: RippleViewWarmup,
+            count: Int,
+            style: ChooseItemStyle = ChooseItemStyle.DEFAULT
+        ) {
+            warmupItemViews(warmup, count, style, ChooseItemView::class.java)
+        }
+
+        /**
+         * 空闲时预先创建count个viewClass类型的标签，比如[ChooseTagView]
+         * 自定义的标签需要有只有Context参数的构造方法
+         * count超过复用池中这个类型的最大缓存数量时会提高上限
+         */
+        @JvmStatic
+        fun <T> warmupItemViews(
+            warmup: RippleViewWarmup,
+            count: Int,
+            style: ChooseItemStyle,
+            viewClass: Class<T>
+        ) where T : View, T : IChooseItemView {
+            warmup.getPool().ensureMaxSize(viewClass, count)
+            warmup.add(viewClass, count) {
+                val itemView = createItemView(viewClass, it)
+                applyItemStyle(itemView, style)
+                itemView
+            }
+        }
+
+        /**
+         * 创建标签，内置的两种标签直接创建，其他的通过反射调用Context参数的构造方法
+         */
+        @Suppress("UNCHECKED_CAST")
+        private fun <T> createItemView(viewClass: Class<T>, context: Context): T
+                where T : View, T : IChooseItemView {
+            return when (viewClass) {
+                ChooseItemView::class.java -> ChooseItemView(context) as T
+                ChooseTagView::class.java -> ChooseTagView(context) as T
+                else -> try {
+                    viewClass.getConstructor(Context::class.java).newInstance(context)
+                } catch (e: Exception) {
+                    throw Exception(viewClass.name + "需要有只有Context参数的构造方法")
+                }
+            }
+        }
+
+        /**
+         * 设置共享的样式，没有实现[IChooseBindableItemView]的不做处理
+         */
+        private fun applyItemStyle(itemView: IChooseItemView, style: ChooseItemStyle) {
+            (itemView as? IChooseBindableItemView)?.applyStyle(style)
+        }
+    }
+
     /**
      * 可选项的点击回调
      */
@@ -51,18 +130,82 @@ class ChooseFlowView @JvmOverloads constructor(
      */
     var onItemClickListener: PentaLambda<View, Int, IChooseModel, Boolean, Boolean> = null
 
+    /**
+     * 选中列表变化的回调，可以添加多个
+     */
+    private val selectionChangedListeners = arrayListOf<OnChooseSelectionChangedListener>()
+
+    /**
+     * 数据更新前的选中列表，更新期间不为null
+     */
+    private var selectionBeforeUpdate: IntArray? = null
+
     private var position = -1
 
     private var maxCount = 1
 
     private var minCount = 0
 
-    private var selectList = LinkedList<Int>()
+    /**
+     * 选中列表，BitSet判断是否选中，环形数组记录FIFO顺序
+     */
+    private val selectList = ChooseSelectList()
 
-    private var allModelList = LinkedList<IChooseModel>()
+    /**
+     * 所有的data model，按下标访问
+     */
+    private val allModelList = arrayListOf<IChooseModel>()
 
     private var resultList = arrayListOf<IChooseModel>()
 
+    /**
+     * resultList对应的选中列表版本，选中没有变化时直接返回
+     */
+    private var resultVersion = -1
+
+    /**
+     * 正在进行的分帧填充
+     */
+    private var populateTask: ChooseFlowPopulateTask<*>? = null
+
+    /**
+     * 增量更新时计算新旧数据的差异
+     */
+    private val itemDiff = ChooseFlowDiff()
+
+    /**
+     * 所有item共用一个点击事件，不需要为每个item创建
+     */
+    private val itemClickDispatcher = OnClickListener { onItemViewClick(it) }
+
+    /**
+     * 标题索引，数据变化后在下一次过滤时重建
+     */
+    private val titleIndex = ChooseTitleIndex()
+
+    private var titleIndexDirty = true
+
+    private var filterQuery = ""
+
+    /**
+     * 转为小写的过滤条件，单个标签判断时使用
+     */
+    private var normalizedFilterQuery = ""
+
+    private val filterResult = BitSet()
+
+    private var filterMatchCount = 0
+
+    /**
+     * 恢复状态时数据还没有添加，等数据添加后再恢复选中
+     */
+    private var pendingSavedState: SavedState? = null
+
+    /**
+     * 标签的复用池，默认不复用
+     */
+    private var itemViewPool: RippleViewPool? = null
+
     init {
         resetView()
     }
@@ -71,112 +214,458 @@ class ChooseFlowView @JvmOverloads constructor(
      * 重置view
      */
     fun resetView() {
-        removeAllViews()
+        removeAndReleaseViews(0, childCount, false)
+        clearData()
+    }
+
+    private fun clearData() {
+        cancelPopulateTask()
         position = -1
         selectList.clear()
         allModelList.clear()
         resultList.clear()
+        resultVersion = -1
+        titleIndexDirty = true
+        filterMatchCount = 0
     }
 
     /**
      * 获取选中的结果
      */
     fun getSelectedResult(): List<IChooseModel> {
+        if (resultVersion == selectList.version) {
+            return resultList
+        }
         resultList.clear()
-//        println("已选中：" + selectList.toString())
-        allModelList.forEachIndexed { index, iChooseModel ->
-            if (selectList.contains(index)) {
-                resultList.add(iChooseModel)
-//                println("标志位：" + index)
-//                println("标志位title:" + iChooseModel.getChooseItemTitle())
-            }
+        var index = selectList.nextSelected(0)
+        while (index >= 0 && index < allModelList.size) {
+            resultList.add(allModelList[index])
+            index = selectList.nextSelected(index + 1)
         }
+        resultVersion = selectList.version
         return resultList
     }
 
-    fun getAllDataList() = allModelList
+    fun getAllDataList(): List<IChooseModel> = allModelList
+
+    /**
+     * 按选中顺序获取选中的下标
+     */
+    fun getSelectedPositions(): IntArray = selectList.toIntArray()
+
+    fun addOnSelectionChangedListener(listener: OnChooseSelectionChangedListener) {
+        if (!selectionChangedListeners.contains(listener)) {
+            selectionChangedListeners.add(listener)
+        }
+    }
+
+    fun removeOnSelectionChangedListener(listener: OnChooseSelectionChangedListener) {
+        selectionChangedListeners.remove(listener)
+    }
+
+    private fun dispatchSelectionChanged(added: IntArray, removed: IntArray) {
+        //数据更新期间不单独回调，结束后统一回调
+        if (selectionBeforeUpdate != null) return
+        if (added.isEmpty() && removed.isEmpty()) return
+        for (index in selectionChangedListeners.size - 1 downTo 0) {
+            selectionChangedListeners[index].onSelectionChanged(this, added, removed)
+        }
+    }
+
+    /**
+     * 开始数据更新，记录更新前的选中列表，嵌套调用时只有最外层生效
+     */
+    private fun beginSelectionUpdate(): Boolean {
+        if (selectionBeforeUpdate != null) return false
+        selectionBeforeUpdate = selectList.toIntArray()
+        return true
+    }
+
+    /**
+     * 结束数据更新，按下标和更新前的选中列表比较，有变化时只回调一次[OnChooseSelectionChangedListener]
+     */
+    private fun endSelectionUpdate(started: Boolean) {
+        if (!started) return
+        val previous = selectionBeforeUpdate ?: return
+        selectionBeforeUpdate = null
+        val previousBits = BitSet()
+        previous.forEach { previousBits.set(it) }
+        val current = selectList.toIntArray()
+        val added = IntArray(current.size)
+        var addedCount = 0
+        for (position in current) {
+            if (!previousBits.get(position)) {
+                added[addedCount++] = position
+            }
+        }
+        val removed = IntArray(previous.size)
+        var removedCount = 0
+        for (position in previous) {
+            if (!selectList.contains(position)) {
+                removed[removedCount++] = position
+            }
+        }
+        dispatchSelectionChanged(added.copyOf(addedCount), removed.copyOf(removedCount))
+    }
+
+    /**
+     * 按标题过滤标签，不区分大小写，query为空时显示所有标签
+     * 不匹配的标签设置为GONE，不会删除，选中状态保持不变
+     * 只有显示状态变化的标签会被修改，之后只需要一次布局
+     */
+    fun setFilter(query: String?) {
+        val newQuery = query?.trim() ?: ""
+        if (newQuery == filterQuery) return
+        filterQuery = newQuery
+        normalizedFilterQuery = ChooseTitleIndex.normalize(newQuery)
+        applyFilter()
+    }
+
+    fun getFilter() = filterQuery
+
+    /**
+     * 当前过滤条件下显示的标签数量
+     */
+    fun getFilterMatchCount() = filterMatchCount
+
+    private fun applyFilter() {
+        if (filterQuery.isEmpty()) {
+            filterResult.clear()
+            filterResult.set(0, allModelList.size)
+            filterMatchCount = allModelList.size
+        } else {
+            if (titleIndexDirty) {
+                titleIndex.build(allModelList.map { it.getChooseItemTitle() })
+                titleIndexDirty = false
+            }
+            filterMatchCount = titleIndex.query(filterQuery, filterResult)
+        }
+        for (index in 0 until childCount) {
+            val child = getChildAt(index)
+            val visibility = if (filterResult.get(index)) View.VISIBLE else View.GONE
+            if (child.visibility != visibility) {
+                child.visibility = visibility
+            }
+        }
+    }
+
+    private fun isTitleMatched(model: IChooseModel): Boolean {
+        //和标题索引使用同样的规则
+        return ChooseTitleIndex.normalize(model.getChooseItemTitle()).contains(normalizedFilterQuery)
+    }
+
+    /**
+     * 数据变化后标题索引失效，有过滤条件时重新过滤
+     */
+    private fun onDataChanged() {
+        titleIndexDirty = true
+        if (filterQuery.isNotEmpty()) {
+            applyFilter()
+        } else {
+            filterMatchCount = allModelList.size
+        }
+    }
+
+    /**
+     * 批量更新所有标签的可选状态
+     * 只更新可选状态有变化的标签，变为不可选的标签会被取消选中，
+     * 不会触发点击回调，选中列表有变化时回调一次[OnChooseSelectionChangedListener]
+     */
+    fun setItemsCheckable(checkable: BooleanArray) {
+        if (checkable.size != allModelList.size)
+            throw Exception("可选状态数量和标签数量不一致")
+        //只有选中的标签才会被取消选中
+        val removed = IntArray(selectList.size)
+        var removedCount = 0
+        for (index in checkable.indices) {
+            val model = allModelList[index]
+            val isCheckable = checkable[index]
+            if (model.getChooseItemCheckable() == isCheckable) continue
+            setItemCheckableStatus(index, isCheckable)
+            if (!isCheckable) {
+                if (selectList.remove(index)) {
+                    removed[removedCount++] = index
+                }
+                if (model.getChooseItemChecked()) {
+                    setItemCheckStatus(index, false)
+                }
+            }
+            val itemView = itemViewAt(index) ?: continue
+            itemView.setCheckable(isCheckable)
+            itemView.setChecked(model.getChooseItemChecked())
+        }
+        dispatchSelectionChanged(EMPTY_POSITIONS, removed.copyOf(removedCount))
+    }
 
     /**
      * 更新当前的view
      * 为了不去每次都添加删除单个的view
      * 进行原有view的重用
+     *
+     * 新旧数据重叠的部分按下标重用原有的itemView，
+     * 多出来的新数据批量添加，多出来的旧数据从尾部一次性删除
+     * 整体开销和数据个数成线性关系
      */
-    fun <T : ChooseItemView> updateView(list: List<Pair<IChooseModel, T>>) {
+    fun <T> updateView(list: List<Pair<IChooseModel, T>>) where T : View, T : IChooseItemView {
+        cancelPopulateTask()
+        val selectionUpdate = beginSelectionUpdate()
         selectList.clear()
         val newCount = list.size
         val oldCount = allModelList.size
+        val reuseCount = newCount.coerceAtMost(oldCount)
+
+        val iterator = list.iterator()
+        var index = 0
+        while (index < reuseCount) {
+            val model = iterator.next()
+            val chooseModel = model.first
+            //更新原有的model列表
+            allModelList[index] = chooseModel
+            updateSelectList(index, chooseModel)
+            //获取原有的itemView
+            val oldItemView = getChildAt(index) as IChooseItemView
+            //更新tag，方法内进行封装
+            (oldItemView as? IChooseBindableItemView)?.updateStatusFrom(model.second)
+            //更新原有的view显示
+            bindItemView(oldItemView, chooseModel)
+            index++
+        }
 
-        if (newCount == oldCount) {
+        if (newCount > oldCount) {
             /**
-             * 如果新旧数据个数相同
+             * 如果新数据比旧数据个数多
              */
-            list.forEachIndexed { index, model ->
-                val chooseModel = model.first
-                //更新原有的model列表
-                allModelList[index] = chooseModel
-                updateSelectList(index, chooseModel)
-                //获取原有的itemView
-                val oldItemView = getChildAt(index) as ChooseItemView
-                //获取新的itemView
-                val newItemView = model.second
-                //更新tag，方法内进行封装
-                if (newItemView != null) {
-                    oldItemView.updateStatus(newItemView)
-                }
-                //更新原有的view显示
-                oldItemView.initData(chooseModel)
-            }
-        } else if (newCount > oldCount) {
+            addItemViews(list.subList(oldCount, newCount))
+        } else if (newCount < oldCount) {
             /**
-             * 如果新数据比旧数据个数多
+             * 如果新数据比旧数据个数少
              */
-            list.forEachIndexed { index, model ->
-                val chooseModel = model.first
-                //新数据与原数据重叠部分
-                if (index < oldCount) {
-                    allModelList[index] = chooseModel
-                    updateSelectList(index, chooseModel)
-                    //获取新的itemView
-                    val newItemView = model.second
-                    //获取原有的itemView
-                    val oldItemView = getChildAt(index) as ChooseItemView
-                    //更新tag，方法内进行封装
-                    if (newItemView != null) {
-                        oldItemView.updateStatus(newItemView)
-                    }
-                    //更新原有的view显示
-                    oldItemView.initData(chooseModel)
-                } else {
-                    if (model.second != null) {
-                        addItemView(model.second, chooseModel)
-                    }
+            allModelList.subList(newCount, oldCount).clear()
+            removeAndReleaseViews(newCount, oldCount - newCount, false)
+            position = newCount - 1
+        }
+        onDataChanged()
+        consumePendingSavedState()
+        endSelectionUpdate(selectionUpdate)
+    }
+
+    /**
+     * 使用共享的样式更新当前的view
+     * 不需要为了传递样式为每个item创建新的itemView，
+     * 重用的itemView样式相同时不会重新设置，多出来的新数据会创建[ChooseItemView]
+     */
+    fun updateView(models: List<IChooseModel>, style: ChooseItemStyle) {
+        updateView(models, style, ChooseItemView::class.java)
+    }
+
+    /**
+     * 和[updateView]一样使用共享的样式更新，多出来的新数据会创建viewClass类型的标签
+     * 重用的itemView保持原有的类型
+     */
+    fun <T> updateView(
+        models: List<IChooseModel>,
+        style: ChooseItemStyle,
+        viewClass: Class<T>
+    ) where T : View, T : IChooseItemView {
+        cancelPopulateTask()
+        val selectionUpdate = beginSelectionUpdate()
+        selectList.clear()
+        val newCount = models.size
+        val oldCount = allModelList.size
+        val reuseCount = newCount.coerceAtMost(oldCount)
+
+        for (index in 0 until reuseCount) {
+            val chooseModel = models[index]
+            allModelList[index] = chooseModel
+            updateSelectList(index, chooseModel)
+            val oldItemView = getChildAt(index) as IChooseItemView
+            applyItemStyle(oldItemView, style)
+            bindItemView(oldItemView, chooseModel)
+        }
+
+        if (newCount > oldCount) {
+            addItemViews(models.subList(oldCount, newCount).map {
+                Pair(it, obtainItemView(viewClass, style))
+            })
+        } else if (newCount < oldCount) {
+            allModelList.subList(newCount, oldCount).clear()
+            removeAndReleaseViews(newCount, oldCount - newCount, false)
+            position = newCount - 1
+        }
+        onDataChanged()
+        consumePendingSavedState()
+        endSelectionUpdate(selectionUpdate)
+    }
+
+    /**
+     * 按照[IChooseIdModel.getChooseItemId]增量更新，没有id的按标题匹配，适合定时刷新的库存数据
+     * 1.新旧数据按id匹配，匹配上的标签重用原有view，只有显示内容变化时才重新绑定
+     * 2.被删除的标签直接移除，新增的标签通过itemViewCreator创建
+     * 3.位置变化的标签只做移动，不会重新创建和绑定
+     * 4.匹配上的标签保留原有的选中态和选中顺序，新增的标签按照data model校验
+     * itemViewCreator的第一个参数为model在list中的下标
+     */
+    fun <T> updateViewByDiff(
+        list: List<IChooseModel>,
+        itemViewCreator: (Int, IChooseModel) -> T
+    ) where T : View, T : IChooseItemView {
+        cancelPopulateTask()
+        val selectionUpdate = beginSelectionUpdate()
+        val oldCount = allModelList.size
+        val newCount = list.size
+
+        val oldKeys = ArrayList<Any>(oldCount)
+        allModelList.forEach { oldKeys.add(getModelKey(it)) }
+        val newKeys = ArrayList<Any>(newCount)
+        list.forEach { newKeys.add(getModelKey(it)) }
+        itemDiff.calculate(oldKeys, newKeys)
+        if (itemDiff.getDuplicateKeyCount() > 0) {
+            Log.w(
+                TAG,
+                "updateViewByDiff存在" + itemDiff.getDuplicateKeyCount() + "个重复的key，重复的标签会被重新创建"
+            )
+        }
+
+        //匹配上的标签按新下标记录原有的view
+        val reuseViews = arrayOfNulls<View>(newCount)
+        for (oldIndex in 0 until oldCount) {
+            val newIndex = itemDiff.convertOldPositionToNew(oldIndex)
+            if (newIndex != ChooseFlowDiff.NO_POSITION) {
+                reuseViews[newIndex] = getChildAt(oldIndex)
+            }
+        }
+
+        updateSelectListByDiff(list)
+
+        //删除的标签从后往前按连续区间移除
+        var removeEnd = ChooseFlowDiff.NO_POSITION
+        for (oldIndex in oldCount - 1 downTo 0) {
+            if (itemDiff.convertOldPositionToNew(oldIndex) == ChooseFlowDiff.NO_POSITION) {
+                if (removeEnd == ChooseFlowDiff.NO_POSITION) {
+                    removeEnd = oldIndex + 1
                 }
+            } else if (removeEnd != ChooseFlowDiff.NO_POSITION) {
+                removeAndReleaseViews(oldIndex + 1, removeEnd - oldIndex - 1, true)
+                removeEnd = ChooseFlowDiff.NO_POSITION
             }
-        } else {
-            list.forEachIndexed { index, model ->
-                val chooseModel = model.first
-                //更新原有的model列表
-                allModelList[index] = chooseModel
-                updateSelectList(index, chooseModel)
-                //获取原有的itemView
-                val oldItemView = getChildAt(index) as ChooseItemView
-                //获取新的itemView
-                val newItemView = model.second
-                //更新tag，方法内进行封装
-                if (newItemView != null) {
-                    oldItemView.updateStatus(newItemView)
+        }
+        if (removeEnd != ChooseFlowDiff.NO_POSITION) {
+            removeAndReleaseViews(0, removeEnd, true)
+        }
+
+        //需要移动的标签先从父布局上摘下来，不会触发detach和attach
+        for (index in 0 until newCount) {
+            val itemView = reuseViews[index]
+            if (itemView != null && !itemDiff.isStable(index)) {
+                detachViewFromParent(itemView)
+            }
+        }
+
+        for (index in 0 until newCount) {
+            val model = list[index]
+            val itemView = reuseViews[index]
+            if (itemView == null) {
+                val newItemView = itemViewCreator(index, model)
+                newItemView.tag = index
+                bindItemView(newItemView, model)
+                newItemView.setOnClickListener(itemClickDispatcher)
+                addViewInLayout(
+                    newItemView,
+                    index,
+                    newItemView.layoutParams ?: generateDefaultLayoutParams(),
+                    true
+                )
+            } else {
+                if (!itemDiff.isStable(index)) {
+                    attachViewToParent(itemView, index, itemView.layoutParams)
+                }
+                itemView.tag = index
+                val chooseItemView = itemView as IChooseItemView
+                if (isItemViewOutdated(chooseItemView, model)) {
+                    bindItemView(chooseItemView, model)
                 }
-                //更新原有的view显示
-                oldItemView.initData(chooseModel)
-                //更新选中态
-                setItemCheckStatus(index, true)
             }
+        }
+        position = newCount - 1
+        onDataChanged()
+        consumePendingSavedState()
+        endSelectionUpdate(selectionUpdate)
+        requestLayout()
+        invalidate()
+    }
 
-            (newCount until oldCount).forEach {
-                allModelList.removeAt(it)
-                removeViewAt(it)
+    /**
+     * 匹配上的标签按照原有的选中顺序保留选中态，不可选的取消选中
+     * 新增的标签按照data model校验，超过最大数量时按照FIFO取消之前的选中
+     */
+    private fun updateSelectListByDiff(list: List<IChooseModel>) {
+        val oldSelected = selectList.toIntArray()
+        selectList.clear()
+        for (oldIndex in oldSelected) {
+            val newIndex = itemDiff.convertOldPositionToNew(oldIndex)
+            if (newIndex != ChooseFlowDiff.NO_POSITION && list[newIndex].getChooseItemCheckable()) {
+                selectList.addLast(newIndex)
             }
         }
+
+        allModelList.clear()
+        allModelList.addAll(list)
+        for (index in allModelList.indices) {
+            val model = allModelList[index]
+            if (itemDiff.convertNewPositionToOld(index) != ChooseFlowDiff.NO_POSITION) {
+                model.setChooseItemChecked(selectList.contains(index))
+            } else if (model.getChooseItemCheckable()) {
+                if (model.getChooseItemChecked()) {
+                    if (selectList.size >= maxCount) {
+                        setItemCheckStatus(selectList.removeFirst(), false)
+                    }
+                    selectList.addLast(index)
+                }
+            } else if (model.getChooseItemChecked()) {
+                model.setChooseItemChecked(false)
+            }
+        }
+    }
+
+    /**
+     * 标签显示的内容和data model是否一致
+     */
+    private fun isItemViewOutdated(itemView: IChooseItemView, model: IChooseModel): Boolean {
+        if (itemView is IChooseBindableItemView) {
+            return itemView.isOutdated(model)
+        }
+        //拿不到标题的按照已经变化处理
+        if (itemView !is TextView) return true
+        return itemView.isCheckable() != model.getChooseItemCheckable()
+                || itemView.isChecked() != model.getChooseItemChecked()
+                || itemView.text.toString() != model.getChooseItemTitle()
+    }
+
+    /**
+     * 获取下标对应的标签
+     */
+    private fun itemViewAt(index: Int): IChooseItemView? = getChildAt(index) as? IChooseItemView
+
+    /**
+     * 匹配新旧数据使用的key，没有id的使用标题
+     */
+    private fun getModelKey(model: IChooseModel): String {
+        return (model as? IChooseIdModel)?.getChooseItemId() ?: model.getChooseItemTitle()
+    }
+
+    /**
+     * 绑定数据，没有实现[IChooseBindableItemView]的只更新可选和选中状态，是TextView时同时设置标题
+     */
+    private fun bindItemView(itemView: IChooseItemView, model: IChooseModel) {
+        if (itemView is IChooseBindableItemView) {
+            itemView.initData(model)
+        } else {
+            if (itemView is TextView) {
+                itemView.text = model.getChooseItemTitle()
+            }
+            itemView.setCheckable(model.getChooseItemCheckable())
+            itemView.setChecked(model.getChooseItemChecked())
+        }
     }
 
     /**
@@ -197,14 +686,14 @@ class ChooseFlowView @JvmOverloads constructor(
         //首先去判断是否是可选装态
         if (chooseModel.getChooseItemCheckable()) {
             setItemCheckableStatus(selectPosition, true)
-            //然后去判断当前item是否是选中状态
-            if (chooseModel.getChooseItemChecked()) {
+            //然后去判断当前item是否是选中状态，已经在选中列表中的不重复添加
+            if (chooseModel.getChooseItemChecked() && !selectList.contains(selectPosition)) {
                 //如果是选中状态，并且被选中的数量大于最大的可选数量
                 if (initCount >= maxCount) {
                     //首先更新被选中的第一个数据model
-                    setItemCheckStatus(selectList.first, false)
+                    setItemCheckStatus(selectList.first(), false)
                     //取消选中还需要更新控件状态
-                    (getChildAt(selectList.first) as ChooseItemView).toggle()
+                    itemViewAt(selectList.first())?.toggle()
                     //此时需要把第一个item删除
                     selectList.removeFirst()
 
@@ -227,13 +716,14 @@ class ChooseFlowView @JvmOverloads constructor(
         if (!isUpdateData) {
             val itemView = getChildAt(selectPosition)
             if (itemView != null) {
-                (itemView as ChooseItemView).initData(chooseModel)
+                bindItemView(itemView as IChooseItemView, chooseModel)
             }
         }
     }
 
     fun notifyItem(selectPosition: Int, chooseModel: IChooseModel) {
         updateSelectList(selectPosition, chooseModel, false)
+        titleIndexDirty = true
     }
 
     /**
@@ -257,14 +747,16 @@ class ChooseFlowView @JvmOverloads constructor(
      * 一般都是动态填充
      */
     @JvmOverloads
-    fun <T : ChooseItemView, M : IChooseModel> addItemView(
+    fun <T, M : IChooseModel> addItemView(
         itemView: T,
         model: M,
         params: LayoutParams? = null
-    ) {
+    ) where T : View, T : IChooseItemView {
+        //分帧填充没有完成时先同步添加剩余的标签，保证下标连续
+        populateTask?.finishNow()
         position++
         allModelList.add(model)
-        itemView.initData(model)
+        bindItemView(itemView, model)
         itemView.tag = position
 
         val initCount = selectList.size
@@ -273,9 +765,9 @@ class ChooseFlowView @JvmOverloads constructor(
             itemView.setCheckable(true)
             if (model.getChooseItemChecked()) {
                 if (initCount >= maxCount) {
-                    val first = selectList.first
-                    (getChildAt(first) as ChooseItemView).toggle()
-                    setItemCheckStatus(selectList.first, false)
+                    val first = selectList.first()
+                    itemViewAt(first)?.toggle()
+                    setItemCheckStatus(selectList.first(), false)
                     selectList.removeFirst()
                     selectList.addLast(position)
                     setItemCheckStatus(position, true)
@@ -293,61 +785,537 @@ class ChooseFlowView @JvmOverloads constructor(
             }
         }
 
-        itemView.setOnClickListener {
-            val pos = it.tag as Int
+        itemView.setOnClickListener(itemClickDispatcher)
+        titleIndexDirty = true
+        if (filterQuery.isNotEmpty()) {
+            //单个添加时直接判断，不重建索引
+            if (isTitleMatched(model)) {
+                filterMatchCount++
+            } else {
+                itemView.visibility = View.GONE
+            }
+        } else {
+            filterMatchCount++
+        }
+        if (params != null) {
+            addView(itemView, params)
+        } else {
+            addView(itemView)
+        }
+        consumePendingSavedState()
+    }
 
-            val isCheckable: Boolean
+    /**
+     * 使用共享的样式填充单个数据
+     */
+    fun addItemView(model: IChooseModel, style: ChooseItemStyle) {
+        addItemView(model, style, ChooseItemView::class.java)
+    }
 
-            /**
-             * 小于最小数量想取消选中但是不可以
-             * 标记为重复选取，不相应操作
-             */
-            var checkRepeat = true
-
-            if (itemView.isCheckable()) {
-                isCheckable = true
-                val mCount = selectList.size
-                if (itemView.isChecked()) {
-                    //取消选中
-                    if (mCount <= minCount) {
-                        //当用户选取数量小于最小数量时不允许取消选中
-                        checkRepeat = false
-                    } else {
-                        selectList.remove(pos)
-                        setItemCheckStatus(pos, false)
-                        itemView.toggle()
-                    }
+    /**
+     * 使用共享的样式填充单个数据，标签类型为viewClass
+     */
+    fun <T> addItemView(
+        model: IChooseModel,
+        style: ChooseItemStyle,
+        viewClass: Class<T>
+    ) where T : View, T : IChooseItemView {
+        addItemView(obtainItemView(viewClass, style), model)
+    }
+
+    /**
+     * 获取一个[ChooseItemView]，设置了复用池时优先从复用池中获取
+     */
+    @JvmOverloads
+    fun obtainItemView(style: ChooseItemStyle = ChooseItemStyle.DEFAULT): ChooseItemView {
+        return obtainItemView(ChooseItemView::class.java, style)
+    }
+
+    /**
+     * 获取一个viewClass类型的标签，设置了复用池时优先从复用池中获取
+     * 自定义的标签需要有只有Context参数的构造方法
+     */
+    fun <T> obtainItemView(viewClass: Class<T>, style: ChooseItemStyle): T
+            where T : View, T : IChooseItemView {
+        val itemView = itemViewPool?.acquire(viewClass, mContext)
+            ?: createItemView(viewClass, mContext)
+        applyItemStyle(itemView, style)
+        return itemView
+    }
+
+    /**
+     * 设置复用池，多个ChooseFlowView可以共享同一个
+     * 重置或者更新时移除的标签会放入复用池，[obtainItemView]会优先从复用池获取
+     */
+    fun setItemViewPool(pool: RippleViewPool?) {
+        itemViewPool = pool
+    }
+
+    fun getItemViewPool() = itemViewPool
+
+    /**
+     * 移除标签，设置了复用池时放入复用池
+     */
+    private fun removeAndReleaseViews(start: Int, count: Int, inLayout: Boolean) {
+        if (count <= 0) return
+        val pool = itemViewPool
+        val removedViews = if (pool != null) Array(count) { getChildAt(start + it) } else null
+        if (inLayout) {
+            removeViewsInLayout(start, count)
+        } else {
+            removeViews(start, count)
+        }
+        if (pool == null || removedViews == null) return
+        for (view in removedViews) {
+            view.setOnClickListener(null)
+            view.tag = null
+            view.visibility = View.VISIBLE
+            pool.release(view)
+        }
+    }
+
+    /**
+     * 批量填充数据
+     * 所有的item只校验一次选中态，绑定一次数据，
+     * 全部添加完之后只请求一次布局
+     */
+    fun <T> addItemViews(list: List<Pair<IChooseModel, T>>) where T : View, T : IChooseItemView {
+        if (list.isEmpty()) return
+        val start = position + 1
+
+        list.forEach {
+            allModelList.add(it.first)
+        }
+        validateSelectList(start)
+
+        list.forEach {
+            val model = it.first
+            val itemView = it.second
+            position++
+            itemView.tag = position
+            bindItemView(itemView, model)
+            itemView.setOnClickListener(itemClickDispatcher)
+            addViewInLayout(
+                itemView,
+                -1,
+                itemView.layoutParams ?: generateDefaultLayoutParams(),
+                true
+            )
+        }
+        consumePendingSavedState()
+        titleIndexDirty = true
+        if (filterQuery.isNotEmpty()) {
+            //只判断新加入的标签，分帧填充时不会每帧重建索引
+            for (index in start until allModelList.size) {
+                if (isTitleMatched(allModelList[index])) {
+                    filterMatchCount++
                 } else {
-                    if (mCount >= maxCount) {
-                        //取消第一个加入最后一个
-                        val first = selectList.first
-                        (getChildAt(first) as ChooseItemView).toggle()
-                        itemView.toggle()
-                        setItemCheckStatus(selectList.first, false)
-                        selectList.removeFirst()
-                        selectList.addLast(pos)
-                        setItemCheckStatus(pos, true)
-                    } else {
-                        //添加选中
-                        itemView.toggle()
-                        selectList.addLast(pos)
-                        setItemCheckStatus(pos, true)
+                    getChildAt(index).visibility = View.GONE
+                }
+            }
+        } else {
+            filterMatchCount = allModelList.size
+        }
+        requestLayout()
+        invalidate()
+    }
+
+    /**
+     * 使用新的数据替换当前所有的item
+     * 和[addItemViews]一样只请求一次布局
+     */
+    fun <T> setItems(list: List<Pair<IChooseModel, T>>) where T : View, T : IChooseItemView {
+        val selectionUpdate = beginSelectionUpdate()
+        removeAndReleaseViews(0, childCount, true)
+        clearData()
+        addItemViews(list)
+        endSelectionUpdate(selectionUpdate)
+        if (list.isEmpty()) {
+            requestLayout()
+            invalidate()
+        }
+    }
+
+    /**
+     * 分帧填充数据，适合一次添加几百个标签
+     * 首屏能显示的标签立即添加，剩下的在之后的每一帧里按时间预算创建并添加
+     * itemViewCreator的第一个参数为model在models中的下标
+     * 返回的task可以在view被复用时取消，[resetView]，[setItems]和updateView系列方法也会取消未完成的填充
+     * 填充完成前调用单个的[addItemView]时会先同步添加剩余的标签
+     */
+    @JvmOverloads
+    fun <T> addItemViewsIncrementally(
+        models: List<IChooseModel>,
+        itemViewCreator: (Int, IChooseModel) -> T,
+        frameBudgetMs: Long = DEFAULT_FRAME_BUDGET_MS,
+        onComplete: (() -> Unit)? = null
+    ): ChooseFlowPopulateTask<T> where T : View, T : IChooseItemView {
+        populateTask?.cancel()
+        val task = ChooseFlowPopulateTask(
+            this,
+            models,
+            itemViewCreator,
+            TimeUnit.MILLISECONDS.toNanos(frameBudgetMs),
+            onComplete
+        )
+        populateTask = task
+        task.start()
+        return task
+    }
+
+    /**
+     * 取消未完成的分帧填充，已经添加的标签保留
+     */
+    private fun cancelPopulateTask() {
+        populateTask?.cancel()
+        populateTask = null
+    }
+
+    internal fun onPopulateTaskFinished(task: ChooseFlowPopulateTask<*>) {
+        if (populateTask === task) {
+            populateTask = null
+        }
+    }
+
+    /**
+     * 从start开始一次性校验新加入的data model
+     * 超过最大数量时按照FIFO取消之前的选中，
+     * 新加入的item只更新data model，绑定view时会显示正确的状态
+     */
+    private fun validateSelectList(start: Int) {
+        for (index in start until allModelList.size) {
+            val model = allModelList[index]
+            if (model.getChooseItemCheckable()) {
+                if (model.getChooseItemChecked()) {
+                    if (selectList.size >= maxCount) {
+                        val first = selectList.removeFirst()
+                        setItemCheckStatus(first, false)
+                        if (first < start) {
+                            itemViewAt(first)?.toggle()
+                        }
                     }
+                    selectList.addLast(index)
+                }
+            } else if (model.getChooseItemChecked()) {
+                /**
+                 * 如果不可选但是是选中状态，这时候控件会去校验数据
+                 */
+                model.setChooseItemChecked(false)
+            }
+        }
+    }
+
+    /**
+     * 所有item共用的点击事件
+     * 点击时通过tag获取下标，从当前的数据列表中获取model，
+     * 数据更新后不需要重新设置点击事件
+     */
+    private fun onItemViewClick(view: View) {
+        val pos = view.tag as? Int ?: return
+        if (pos >= allModelList.size) return
+        val itemView = view as? IChooseItemView ?: return
+        val model = allModelList[pos]
+
+        val isCheckable: Boolean
+
+        /**
+         * 小于最小数量想取消选中但是不可以
+         * 标记为重复选取，不相应操作
+         */
+        var checkRepeat = true
+
+        var added = EMPTY_POSITIONS
+        var removed = EMPTY_POSITIONS
+
+        if (itemView.isCheckable()) {
+            isCheckable = true
+            val mCount = selectList.size
+            if (itemView.isChecked()) {
+                //取消选中
+                if (mCount <= minCount) {
+                    //当用户选取数量小于最小数量时不允许取消选中
+                    checkRepeat = false
+                } else {
+                    selectList.remove(pos)
+                    setItemCheckStatus(pos, false)
+                    itemView.toggle()
+                    removed = intArrayOf(pos)
                 }
-                onItemAbleClickListener?.invoke(it, pos, model)
             } else {
-                isCheckable = false
-                onItemUnableClickListener?.invoke(it, pos, model)
+                if (mCount >= maxCount) {
+                    //取消第一个加入最后一个
+                    val first = selectList.first()
+                    itemViewAt(first)?.toggle()
+                    itemView.toggle()
+                    setItemCheckStatus(selectList.first(), false)
+                    selectList.removeFirst()
+                    selectList.addLast(pos)
+                    setItemCheckStatus(pos, true)
+                    added = intArrayOf(pos)
+                    removed = intArrayOf(first)
+                } else {
+                    //添加选中
+                    itemView.toggle()
+                    selectList.addLast(pos)
+                    setItemCheckStatus(pos, true)
+                    added = intArrayOf(pos)
+                }
             }
+            onItemAbleClickListener?.invoke(view, pos, model)
+        } else {
+            isCheckable = false
+            onItemUnableClickListener?.invoke(view, pos, model)
+        }
 
-            onItemClickListener?.invoke(it, pos, model, isCheckable, checkRepeat)
+        onItemClickListener?.invoke(view, pos, model, isCheckable, checkRepeat)
 
+        dispatchSelectionChanged(added, removed)
+    }
 
+    /**
+     * 批量选中，按照positions的顺序加到选中列表的最后
+     * 不可选的和已经选中的会被忽略，超过最大数量时按照FIFO取消最早的选中
+     * 不会触发点击回调，只回调一次[OnChooseSelectionChangedListener]
+     */
+    fun selectItems(positions: IntArray) {
+        val current = selectList.toIntArray()
+        val candidates = IntArray(current.size + positions.size)
+        val candidateBits = BitSet()
+        var count = 0
+        for (position in current) {
+            candidates[count++] = position
+            candidateBits.set(position)
         }
-        if (params != null) {
-            addView(itemView, params)
-        } else {
-            addView(itemView)
+        for (position in positions) {
+            if (position < 0 || position >= allModelList.size || candidateBits.get(position)) continue
+            if (!allModelList[position].getChooseItemCheckable()) continue
+            candidates[count++] = position
+            candidateBits.set(position)
+        }
+        //只保留最后的maxCount个
+        val dropCount = (count - maxCount).coerceAtLeast(0)
+        for (order in 0 until dropCount) {
+            candidateBits.clear(candidates[order])
+        }
+        replaceSelection(candidates.copyOfRange(dropCount, count), count - dropCount, candidateBits)
+    }
+
+    /**
+     * 批量取消选中，按照positions的顺序取消，达到最小选取数量后不再取消
+     * 不会触发点击回调，只回调一次[OnChooseSelectionChangedListener]
+     */
+    fun deselectItems(positions: IntArray) {
+        val removeBits = BitSet()
+        var remainCount = selectList.size
+        for (position in positions) {
+            if (remainCount <= minCount) break
+            if (position < 0 || !selectList.contains(position) || removeBits.get(position)) continue
+            removeBits.set(position)
+            remainCount--
+        }
+        if (removeBits.isEmpty) return
+
+        val selected = IntArray(remainCount)
+        val selectedBits = BitSet()
+        var count = 0
+        for (order in 0 until selectList.size) {
+            val position = selectList[order]
+            if (!removeBits.get(position)) {
+                selected[count++] = position
+                selectedBits.set(position)
+            }
+        }
+        replaceSelection(selected, count, selectedBits)
+    }
+
+    /**
+     * 清空选中，有最小选取数量时保留最后选中的几个
+     */
+    fun clearSelection() {
+        deselectItems(selectList.toIntArray())
+    }
+
+    /**
+     * 反选，所有可选并且没有选中的标签变为选中
+     * 超过最大数量时只保留下标靠后的，少于最小选取数量时不做处理
+     */
+    fun invertSelection() {
+        selectIfInternal { position, model ->
+            model.getChooseItemCheckable() && !selectList.contains(position)
+        }
+    }
+
+    /**
+     * 按条件选中，满足条件并且可选的标签作为新的选中列表
+     * 超过最大数量时只保留下标靠后的，少于最小选取数量时不做处理
+     */
+    fun selectIf(predicate: (IChooseModel) -> Boolean) {
+        selectIfInternal { _, model ->
+            model.getChooseItemCheckable() && predicate(model)
+        }
+    }
+
+    private inline fun selectIfInternal(predicate: (Int, IChooseModel) -> Boolean) {
+        val matched = IntArray(allModelList.size)
+        var count = 0
+        for (position in allModelList.indices) {
+            if (predicate(position, allModelList[position])) {
+                matched[count++] = position
+            }
+        }
+        if (count < minCount) return
+        val dropCount = (count - maxCount).coerceAtLeast(0)
+        val selectedBits = BitSet()
+        for (order in dropCount until count) {
+            selectedBits.set(matched[order])
+        }
+        replaceSelection(matched.copyOfRange(dropCount, count), count - dropCount, selectedBits)
+    }
+
+    /**
+     * 只保存选中的下标和key以及最大最小选取数量，不保存data model
+     */
+    override fun onSaveInstanceState(): Parcelable? {
+        val savedState = SavedState(super.onSaveInstanceState())
+        val positions = selectList.toIntArray()
+        savedState.selectedPositions = positions
+        savedState.selectedKeys = Array(positions.size) { getModelKey(allModelList[positions[it]]) }
+        savedState.maxCount = maxCount
+        savedState.minCount = minCount
+        return savedState
+    }
+
+    override fun onRestoreInstanceState(state: Parcelable?) {
+        if (state !is SavedState) {
+            super.onRestoreInstanceState(state)
+            return
+        }
+        super.onRestoreInstanceState(state.superState)
+        maxCount = state.maxCount
+        minCount = state.minCount
+        pendingSavedState = state
+        consumePendingSavedState()
+    }
+
+    /**
+     * 数据个数足够时恢复等待中的选中状态
+     * 所有添加和更新数据的方法最后都会调用
+     */
+    private fun consumePendingSavedState() {
+        val savedState = pendingSavedState ?: return
+        if (savedState.isPositionsAvailable(allModelList.size)) {
+            pendingSavedState = null
+            restoreSelection(savedState)
+        }
+    }
+
+    /**
+     * 一次性恢复选中列表
+     * 下标对应的key不一致或者已经不可选的不会恢复，只刷新选中态有变化的标签
+     * 能恢复的数量少于最小选取数量时保留当前的选中列表
+     */
+    private fun restoreSelection(state: SavedState) {
+        val positions = state.selectedPositions
+        val restored = IntArray(positions.size)
+        val restoredBits = BitSet()
+        var restoredCount = 0
+        for (order in positions.indices) {
+            val position = positions[order]
+            val model = allModelList[position]
+            if (restoredCount < maxCount
+                && !restoredBits.get(position)
+                && model.getChooseItemCheckable()
+                && getModelKey(model) == state.selectedKeys[order]
+            ) {
+                restored[restoredCount++] = position
+                restoredBits.set(position)
+            }
+        }
+        if (restoredCount < minCount) return
+
+        replaceSelection(restored, restoredCount, restoredBits)
+    }
+
+    /**
+     * 使用新的选中列表替换当前的选中列表，selected为选中顺序
+     * 只刷新选中态有变化的标签，回调一次[OnChooseSelectionChangedListener]
+     */
+    private fun replaceSelection(selected: IntArray, count: Int, selectedBits: BitSet) {
+        val removed = selectList.toIntArray()
+        var removedCount = 0
+        for (position in removed) {
+            if (!selectedBits.get(position)) {
+                removed[removedCount++] = position
+                setItemCheckStatus(position, false)
+                itemViewAt(position)?.setChecked(false)
+            }
+        }
+        val added = IntArray(count)
+        var addedCount = 0
+        for (order in 0 until count) {
+            val position = selected[order]
+            if (!selectList.contains(position)) {
+                added[addedCount++] = position
+                setItemCheckStatus(position, true)
+                itemViewAt(position)?.setChecked(true)
+            }
+        }
+
+        selectList.clear()
+        for (order in 0 until count) {
+            selectList.addLast(selected[order])
+        }
+        dispatchSelectionChanged(added.copyOf(addedCount), removed.copyOf(removedCount))
+    }
+
+    /**
+     * 只包含选中的下标和key，key用来校验恢复时数据是否一致
+     */
+    internal class SavedState : BaseSavedState {
+
+        var selectedPositions = IntArray(0)
+
+        var selectedKeys = arrayOf<String>()
+
+        var maxCount = 1
+
+        var minCount = 0
+
+        constructor(superState: Parcelable?) : super(superState)
+
+        private constructor(source: Parcel) : super(source) {
+            selectedPositions = source.createIntArray() ?: IntArray(0)
+            selectedKeys = source.createStringArray() ?: arrayOf()
+            maxCount = source.readInt()
+            minCount = source.readInt()
+        }
+
+        /**
+         * 数据个数是否足够恢复所有的选中下标
+         */
+        fun isPositionsAvailable(count: Int): Boolean {
+            return count > 0 && selectedPositions.all { it < count }
+        }
+
+        override fun writeToParcel(out: Parcel, flags: Int) {
+            super.writeToParcel(out, flags)
+            out.writeIntArray(selectedPositions)
+            out.writeStringArray(selectedKeys)
+            out.writeInt(maxCount)
+            out.writeInt(minCount)
+        }
+
+        companion object {
+            @JvmField
+            val CREATOR = object : Parcelable.Creator<SavedState> {
+                override fun createFromParcel(source: Parcel): SavedState {
+                    return SavedState(source)
+                }
+
+                override fun newArray(size: Int): Array<SavedState?> {
+                    return arrayOfNulls(size)
+                }
+            }
         }
     }
 
@@ -0,0 +1,147 @@
+package com.ripple.ui.flowview.impl
+
+import android.graphics.Color
+import android.view.View
+import android.widget.TextView
+import com.ripple.ui.R
+import com.ripple.ui.flowview.ChooseItemStyle
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/21 14:30
+ * Email: fanyafeng@live.cn
+ * Description: 标签三种状态的背景和字体颜色，由标签持有
+ *
+ * 1.背景或者字体颜色修改后标记为需要重新设置，同时不再和共享样式一致
+ * 2.[applyIfNeeded]通过[ChooseStateListFactory]设置StateListDrawable和ColorStateList，只在变化后设置一次
+ * 3.可选和选中通过drawable state表示，标签在onCreateDrawableState中调用[mergeCheckStates]
+ */
+class ChooseItemStyleHolder {
+
+    companion object {
+        /**
+         * onCreateDrawableState需要额外申请的状态个数
+         */
+        const val EXTRA_STATE_SPACE = 2
+
+        /**
+         * 合并可选和选中状态，在标签的父类构造方法中也可能被调用，所以不依赖实例
+         */
+        @JvmStatic
+        fun mergeCheckStates(baseState: IntArray, checkable: Boolean, checked: Boolean): IntArray {
+            var index = baseState.size - 1
+            while (index >= 0 && baseState[index] == 0) {
+                index--
+            }
+            if (checkable) {
+                baseState[++index] = ChooseStateListFactory.STATE_CHECKABLE[0]
+            }
+            if (checked) {
+                baseState[++index] = ChooseStateListFactory.STATE_CHECKED[0]
+            }
+            return baseState
+        }
+    }
+
+    /**
+     * 样式变化后需要重新设置StateListDrawable和ColorStateList
+     */
+    private var styleDirty = true
+
+    /**
+     * 通过[applyStyle]设置的样式
+     */
+    var itemStyle: ChooseItemStyle? = null
+        private set
+
+    /**
+     * 标签背景的三种状态
+     */
+    var chooseViewUnselectable = R.drawable.choose_view_unselectable
+        set(value) {
+            field = value
+            markDirty()
+        }
+    var chooseViewSelected = R.drawable.choose_view_selected
+        set(value) {
+            field = value
+            markDirty()
+        }
+    var chooseViewUnselected = R.drawable.choose_view_unselected
+        set(value) {
+            field = value
+            markDirty()
+        }
+
+    /**
+     * 标签内部字体的三种颜色
+     */
+    var unselectableTagColor = Color.parseColor("#cccccc")
+        set(value) {
+            field = value
+            markDirty()
+        }
+    var selectedTagColor = Color.parseColor("#ff680a")
+        set(value) {
+            field = value
+            markDirty()
+        }
+    var unselectedTagColor = Color.BLACK
+        set(value) {
+            field = value
+            markDirty()
+        }
+
+    /**
+     * 是否已经设置了这个共享样式
+     */
+    fun isStyleApplied(style: ChooseItemStyle) = itemStyle === style
+
+    /**
+     * 标签的尺寸或者padding单独修改后不再和共享样式一致
+     */
+    fun clearItemStyle() {
+        itemStyle = null
+    }
+
+    /**
+     * 设置共享样式的背景和字体颜色，尺寸和padding由标签在调用之前设置
+     */
+    fun applyStyle(style: ChooseItemStyle, backgroundView: View, textView: TextView) {
+        chooseViewUnselectable = style.unselectableBackground
+        chooseViewSelected = style.selectedBackground
+        chooseViewUnselected = style.unselectedBackground
+        unselectableTagColor = style.unselectableTextColor
+        selectedTagColor = style.selectedTextColor
+        unselectedTagColor = style.unselectedTextColor
+        itemStyle = style
+        applyIfNeeded(backgroundView, textView)
+    }
+
+    /**
+     * 样式只在变化后设置一次，切换状态不会重新加载资源
+     */
+    fun applyIfNeeded(backgroundView: View, textView: TextView) {
+        if (!styleDirty) return
+        styleDirty = false
+        backgroundView.background = ChooseStateListFactory.getBackground(
+            backgroundView.context,
+            chooseViewUnselectable,
+            chooseViewSelected,
+            chooseViewUnselected
+        )
+        textView.setTextColor(
+            ChooseStateListFactory.getTextColor(
+                unselectableTagColor,
+                selectedTagColor,
+                unselectedTagColor
+            )
+        )
+    }
+
+    private fun markDirty() {
+        styleDirty = true
+        itemStyle = null
+    }
+}
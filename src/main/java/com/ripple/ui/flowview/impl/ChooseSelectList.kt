@@ -0,0 +1,143 @@
+package com.ripple.ui.flowview.impl
+
+import java.util.*
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/10 10:05
+ * Email: fanyafeng@live.cn
+ * Description: 选中列表
+ *
+ * 1.BitSet记录是否选中，查询为常数时间
+ * 2.int环形数组记录选中的先后顺序，用于达到最大选取数量时的FIFO替换
+ * 3.每次修改都会更新version，外部可以据此缓存选中结果
+ */
+class ChooseSelectList {
+
+    companion object {
+        private const val DEFAULT_CAPACITY = 8
+    }
+
+    private val selectedBits = BitSet()
+
+    /**
+     * 选中顺序的环形数组，容量始终为2的幂
+     */
+    private var ring = IntArray(DEFAULT_CAPACITY)
+
+    private var head = 0
+
+    /**
+     * 选中的数量
+     */
+    var size = 0
+        private set
+
+    /**
+     * 修改次数
+     */
+    var version = 0
+        private set
+
+    fun contains(index: Int) = selectedBits.get(index)
+
+    fun isEmpty() = size == 0
+
+    /**
+     * 最早选中的下标
+     */
+    fun first(): Int {
+        if (size == 0) throw NoSuchElementException()
+        return ring[head]
+    }
+
+    /**
+     * 按选中顺序获取下标，0为最早选中的
+     */
+    operator fun get(order: Int): Int {
+        if (order < 0 || order >= size) throw IndexOutOfBoundsException("order: $order, size: $size")
+        return ring[(head + order) and (ring.size - 1)]
+    }
+
+    /**
+     * 添加到选中顺序的最后，已经选中的不会重复添加
+     */
+    fun addLast(index: Int): Boolean {
+        if (selectedBits.get(index)) return false
+        if (size == ring.size) {
+            grow()
+        }
+        ring[(head + size) and (ring.size - 1)] = index
+        size++
+        selectedBits.set(index)
+        version++
+        return true
+    }
+
+    /**
+     * 移除最早选中的下标
+     */
+    fun removeFirst(): Int {
+        val first = first()
+        head = (head + 1) and (ring.size - 1)
+        size--
+        selectedBits.clear(first)
+        version++
+        return first
+    }
+
+    /**
+     * 移除任意一个选中的下标
+     * 需要在环形数组中查找并前移后面的元素，开销和选中数量相关，和总数无关
+     */
+    fun remove(index: Int): Boolean {
+        if (!selectedBits.get(index)) return false
+        val mask = ring.size - 1
+        var order = 0
+        while (ring[(head + order) and mask] != index) {
+            order++
+        }
+        while (order < size - 1) {
+            ring[(head + order) and mask] = ring[(head + order + 1) and mask]
+            order++
+        }
+        size--
+        selectedBits.clear(index)
+        version++
+        return true
+    }
+
+    fun clear() {
+        if (size == 0) return
+        selectedBits.clear()
+        head = 0
+        size = 0
+        version++
+    }
+
+    /**
+     * 按下标从小到大遍历选中项，from之后没有选中的返回-1
+     */
+    fun nextSelected(from: Int) = selectedBits.nextSetBit(from)
+
+    /**
+     * 按选中顺序导出
+     */
+    fun toIntArray(): IntArray {
+        val result = IntArray(size)
+        for (order in 0 until size) {
+            result[order] = get(order)
+        }
+        return result
+    }
+
+    private fun grow() {
+        val newRing = IntArray(ring.size * 2)
+        for (order in 0 until size) {
+            newRing[order] = get(order)
+        }
+        ring = newRing
+        head = 0
+    }
+}
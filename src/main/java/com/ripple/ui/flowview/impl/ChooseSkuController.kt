@@ -0,0 +1,134 @@
+package com.ripple.ui.flowview.impl
+
+import com.ripple.ui.flowview.IChooseFlowView
+import com.ripple.ui.flowview.IChooseIdModel
+import com.ripple.ui.flowview.IChooseSkuModel
+import com.ripple.ui.flowview.OnChooseSelectionChangedListener
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/11 11:30
+ * Email: fanyafeng@live.cn
+ * Description: 多规格选择，协调多个[ChooseFlowView]
+ *
+ * 每个[ChooseFlowView]为一个规格组，组内单选
+ * 1.设置数据时通过[ChooseSkuEngine]建立库存索引
+ * 2.任意一组选中变化后重新计算所有规格值的可选状态
+ * 3.每个规格组通过[ChooseFlowView.setItemsCheckable]批量更新，只有状态变化的标签会刷新
+ */
+class ChooseSkuController {
+
+    private val engine = ChooseSkuEngine()
+
+    private val groupViews = arrayListOf<ChooseFlowView>()
+
+    private var skuList: List<IChooseSkuModel> = emptyList()
+
+    /**
+     * 每个规格组选中的规格值下标
+     */
+    private var selected = IntArray(0)
+
+    private var lastSelected = IntArray(0)
+
+    /**
+     * 批量更新可选状态时不响应选中变化
+     */
+    private var applying = false
+
+    /**
+     * 选中的sku变化的回调，没有选全规格时为null
+     */
+    var onSkuChangedListener: ((IChooseSkuModel?) -> Unit)? = null
+
+    private val selectionChangedListener = object : OnChooseSelectionChangedListener {
+        override fun onSelectionChanged(
+            chooseFlowView: IChooseFlowView,
+            added: IntArray,
+            removed: IntArray
+        ) {
+            if (!applying) {
+                refreshCheckable()
+            }
+        }
+    }
+
+    /**
+     * 设置规格组和sku
+     * 规格组的标签需要先添加到[ChooseFlowView]中，标签和sku按照id或者标题匹配
+     */
+    fun setData(groups: List<ChooseFlowView>, skuList: List<IChooseSkuModel>) {
+        release()
+        groupViews.addAll(groups)
+        this.skuList = skuList
+        groupViews.forEach {
+            it.addOnSelectionChangedListener(selectionChangedListener)
+        }
+        notifyDataChanged()
+    }
+
+    /**
+     * 规格标签或者sku库存变化后重新建立索引
+     */
+    fun notifyDataChanged() {
+        val groupKeys = groupViews.map { chooseFlowView ->
+            chooseFlowView.getAllDataList().map {
+                (it as? IChooseIdModel)?.getChooseItemId() ?: it.getChooseItemTitle()
+            }
+        }
+        engine.setData(groupKeys, skuList)
+        selected = IntArray(groupViews.size)
+        lastSelected = IntArray(groupViews.size)
+        refreshCheckable()
+    }
+
+    /**
+     * 获取选中的sku，没有选全规格或者没有库存时返回null
+     */
+    fun getSelectedSku(): IChooseSkuModel? {
+        readSelected()
+        if (selected.contains(ChooseSkuEngine.NO_SELECTED)) return null
+        val index = engine.findSku(selected)
+        return if (index >= 0) skuList[index] else null
+    }
+
+    /**
+     * 解除和[ChooseFlowView]的关联
+     */
+    fun release() {
+        groupViews.forEach {
+            it.removeOnSelectionChangedListener(selectionChangedListener)
+        }
+        groupViews.clear()
+    }
+
+    /**
+     * 变为不可选的标签会被取消选中，此时需要重新计算，直到选中不再变化
+     */
+    private fun refreshCheckable() {
+        applying = true
+        try {
+            do {
+                readSelected()
+                selected.copyInto(lastSelected)
+                engine.compute(selected)
+                for (group in groupViews.indices) {
+                    groupViews[group].setItemsCheckable(engine.getCheckable(group))
+                }
+                readSelected()
+            } while (!selected.contentEquals(lastSelected))
+        } finally {
+            applying = false
+        }
+        onSkuChangedListener?.invoke(getSelectedSku())
+    }
+
+    private fun readSelected() {
+        for (group in groupViews.indices) {
+            val positions = groupViews[group].getSelectedPositions()
+            selected[group] =
+                if (positions.isEmpty()) ChooseSkuEngine.NO_SELECTED else positions[positions.size - 1]
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.ripple.ui.flowview.impl
+
+import com.ripple.ui.flowview.IChooseSkuModel
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/11 10:35
+ * Email: fanyafeng@live.cn
+ * Description: 多规格可选状态的计算
+ *
+ * 1.设置数据时为每个规格值建立一个有库存sku的位图，第i位表示第i个sku包含这个规格值
+ * 2.某个规格组的可选状态只和其他规格组的选中有关，
+ *  通过前缀和后缀的按位与得到除自己以外所有已选规格对应的sku集合
+ * 3.规格值和这个集合有交集就是可选的
+ * 计算时不会分配内存，开销和规格值数量以及sku数量/64相关
+ */
+class ChooseSkuEngine {
+
+    companion object {
+        const val NO_SELECTED = -1
+    }
+
+    private var groupCount = 0
+
+    /**
+     * 每个位图long的个数
+     */
+    private var wordCount = 0
+
+    /**
+     * 规格组->规格值->sku位图
+     */
+    private var valueMasks = arrayOf<Array<LongArray>>()
+
+    /**
+     * 所有有库存的sku
+     */
+    private var allMask = LongArray(0)
+
+    private var prefixMasks = arrayOf<LongArray>()
+
+    private var suffixMasks = arrayOf<LongArray>()
+
+    private var checkable = arrayOf<BooleanArray>()
+
+    /**
+     * 建立索引
+     * groupKeys为每个规格组中规格值的key，顺序和标签一致
+     * 规格值数量和规格组不匹配，或者没有库存的sku不会被索引
+     */
+    fun setData(groupKeys: List<List<String>>, skuList: List<IChooseSkuModel>) {
+        groupCount = groupKeys.size
+        wordCount = (skuList.size + 63) ushr 6
+        valueMasks = Array(groupCount) { group ->
+            Array(groupKeys[group].size) { LongArray(wordCount) }
+        }
+        allMask = LongArray(wordCount)
+        prefixMasks = Array(groupCount + 1) { LongArray(wordCount) }
+        suffixMasks = Array(groupCount + 1) { LongArray(wordCount) }
+        checkable = Array(groupCount) { group -> BooleanArray(groupKeys[group].size) }
+
+        val keyIndexMaps = Array(groupCount) { group ->
+            val keyIndexMap = HashMap<String, Int>(groupKeys[group].size * 2)
+            groupKeys[group].forEachIndexed { index, key ->
+                if (!keyIndexMap.containsKey(key)) {
+                    keyIndexMap[key] = index
+                }
+            }
+            keyIndexMap
+        }
+
+        val valueIndexes = IntArray(groupCount)
+        skuList.forEachIndexed { skuIndex, sku ->
+            if (!sku.isSkuInStock()) return@forEachIndexed
+            val specKeys = sku.getSkuSpecKeys()
+            if (specKeys.size != groupCount) return@forEachIndexed
+            for (group in 0 until groupCount) {
+                valueIndexes[group] = keyIndexMaps[group][specKeys[group]] ?: return@forEachIndexed
+            }
+            val word = skuIndex ushr 6
+            val bit = 1L shl (skuIndex and 63)
+            for (group in 0 until groupCount) {
+                valueMasks[group][valueIndexes[group]][word] =
+                    valueMasks[group][valueIndexes[group]][word] or bit
+            }
+            allMask[word] = allMask[word] or bit
+        }
+    }
+
+    fun getGroupCount() = groupCount
+
+    /**
+     * 根据每个规格组的选中计算所有规格值的可选状态
+     * selected为每个规格组选中的规格值下标，没有选中为[NO_SELECTED]
+     */
+    fun compute(selected: IntArray) {
+        if (selected.size != groupCount)
+            throw Exception("选中规格数量和规格组数量不一致")
+        allMask.copyInto(prefixMasks[0])
+        for (group in 0 until groupCount) {
+            and(prefixMasks[group], getSelectedMask(group, selected), prefixMasks[group + 1])
+        }
+        allMask.copyInto(suffixMasks[groupCount])
+        for (group in groupCount - 1 downTo 0) {
+            and(suffixMasks[group + 1], getSelectedMask(group, selected), suffixMasks[group])
+        }
+
+        for (group in 0 until groupCount) {
+            val prefix = prefixMasks[group]
+            val suffix = suffixMasks[group + 1]
+            val masks = valueMasks[group]
+            val groupCheckable = checkable[group]
+            for (value in masks.indices) {
+                groupCheckable[value] = intersects(masks[value], prefix, suffix)
+            }
+        }
+    }
+
+    /**
+     * 最近一次[compute]后规格组中每个规格值是否可选
+     */
+    fun getCheckable(group: Int): BooleanArray = checkable[group]
+
+    fun isCheckable(group: Int, value: Int) = checkable[group][value]
+
+    /**
+     * 找到同时包含所有选中规格值的第一个有库存sku，没有找到返回-1
+     */
+    fun findSku(selected: IntArray): Int {
+        if (selected.size != groupCount)
+            throw Exception("选中规格数量和规格组数量不一致")
+        for (word in 0 until wordCount) {
+            var bits = allMask[word]
+            for (group in 0 until groupCount) {
+                if (bits == 0L) break
+                bits = bits and getSelectedMask(group, selected)[word]
+            }
+            if (bits != 0L) {
+                return (word shl 6) + java.lang.Long.numberOfTrailingZeros(bits)
+            }
+        }
+        return -1
+    }
+
+    private fun getSelectedMask(group: Int, selected: IntArray): LongArray {
+        val value = selected[group]
+        return if (value == NO_SELECTED) allMask else valueMasks[group][value]
+    }
+
+    private fun and(first: LongArray, second: LongArray, result: LongArray) {
+        for (word in 0 until wordCount) {
+            result[word] = first[word] and second[word]
+        }
+    }
+
+    private fun intersects(first: LongArray, second: LongArray, third: LongArray): Boolean {
+        for (word in 0 until wordCount) {
+            if (first[word] and second[word] and third[word] != 0L) return true
+        }
+        return false
+    }
+}
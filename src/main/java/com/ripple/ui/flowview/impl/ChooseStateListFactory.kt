@@ -0,0 +1,114 @@
+package com.ripple.ui.flowview.impl
+
+import android.content.Context
+import android.content.res.ColorStateList
+import android.graphics.drawable.Drawable
+import android.graphics.drawable.StateListDrawable
+import androidx.core.content.ContextCompat
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/15 14:20
+ * Email: fanyafeng@live.cn
+ * Description: 标签三种状态的背景和字体颜色
+ *
+ * 1.不可选，选中，未选中三种状态对应state_checkable和state_checked
+ * 2.同一组资源在同一个uiMode和densityDpi下的StateListDrawable只创建一次，之后通过ConstantState共享，
+ * 夜间模式和屏幕密度变化时会重新加载
+ * 3.ColorStateList不可变，同一组颜色直接共享一个实例
+ * 标签切换状态时只需要refreshDrawableState，不会重新加载资源
+ */
+object ChooseStateListFactory {
+
+    @JvmField
+    val STATE_CHECKABLE = intArrayOf(android.R.attr.state_checkable)
+
+    @JvmField
+    val STATE_CHECKED = intArrayOf(android.R.attr.state_checked)
+
+    private val STATE_SET_UNSELECTABLE = intArrayOf(-android.R.attr.state_checkable)
+
+    private val STATE_SET_SELECTED = intArrayOf(android.R.attr.state_checked)
+
+    private val STATE_SET_UNSELECTED = intArrayOf()
+
+    /**
+     * 背景的缓存key，资源会随夜间模式和屏幕密度变化
+     */
+    private data class BackgroundKey(
+        val unselectable: Int,
+        val selected: Int,
+        val unselected: Int,
+        val uiMode: Int,
+        val densityDpi: Int
+    )
+
+    private val backgroundCache = HashMap<BackgroundKey, Drawable.ConstantState>()
+
+    private val textColorCache = HashMap<Triple<Int, Int, Int>, ColorStateList>()
+
+    /**
+     * 获取标签背景，每次返回新的实例，但是共享同一个ConstantState
+     */
+    fun getBackground(
+        context: Context,
+        unselectable: Int,
+        selected: Int,
+        unselected: Int
+    ): Drawable {
+        val configuration = context.resources.configuration
+        val key = BackgroundKey(
+            unselectable,
+            selected,
+            unselected,
+            configuration.uiMode,
+            configuration.densityDpi
+        )
+        val constantState = backgroundCache[key]
+        if (constantState != null) {
+            return constantState.newDrawable(context.resources)
+        }
+        val drawable = StateListDrawable()
+        addState(context, drawable, STATE_SET_UNSELECTABLE, unselectable)
+        addState(context, drawable, STATE_SET_SELECTED, selected)
+        addState(context, drawable, STATE_SET_UNSELECTED, unselected)
+        drawable.constantState?.let {
+            backgroundCache[key] = it
+        }
+        return drawable
+    }
+
+    /**
+     * 获取标签字体颜色，颜色值和配置无关
+     */
+    fun getTextColor(unselectable: Int, selected: Int, unselected: Int): ColorStateList {
+        val key = Triple(unselectable, selected, unselected)
+        return textColorCache.getOrPut(key) {
+            ColorStateList(
+                arrayOf(STATE_SET_UNSELECTABLE, STATE_SET_SELECTED, STATE_SET_UNSELECTED),
+                intArrayOf(unselectable, selected, unselected)
+            )
+        }
+    }
+
+    /**
+     * 清空缓存，运行时通过setTheme切换主题后需要调用
+     * 夜间模式和屏幕密度变化不需要调用
+     */
+    fun clear() {
+        backgroundCache.clear()
+        textColorCache.clear()
+    }
+
+    private fun addState(
+        context: Context,
+        drawable: StateListDrawable,
+        stateSet: IntArray,
+        resId: Int
+    ) {
+        if (resId == 0) return
+        val stateDrawable = ContextCompat.getDrawable(context, resId) ?: return
+        drawable.addState(stateSet, stateDrawable)
+    }
+}
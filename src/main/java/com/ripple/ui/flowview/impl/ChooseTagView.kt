@@ -0,0 +1,254 @@
+package com.ripple.ui.flowview.impl
+
+import android.content.Context
+import android.text.TextUtils
+import android.util.AttributeSet
+import android.util.TypedValue
+import android.view.Gravity
+import android.view.ViewGroup
+import androidx.appcompat.widget.AppCompatTextView
+import com.ripple.tool.density.dp2px
+import com.ripple.ui.flowview.ChooseItemStyle
+import com.ripple.ui.flowview.IChooseBindableItemView
+import com.ripple.ui.flowview.IChooseItemView
+import com.ripple.ui.flowview.IChooseModel
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/15 10:30
+ * Email: fanyafeng@live.cn
+ * Description: 单层的标签view
+ *
+ * 和[ChooseItemView]的显示一致，但是只有一个TextView，
+ * 不需要inflate布局，也不需要通过synthetic查找内部view
+ * 外层的margin通过LayoutParams设置，适合大量标签
+ */
+open class ChooseTagView @JvmOverloads constructor(
+    mContext: Context,
+    attrs: AttributeSet? = null,
+    defStyleAttr: Int = android.R.attr.textViewStyle
+) : AppCompatTextView(mContext, attrs, defStyleAttr), IChooseBindableItemView {
+
+    private var mChecked = false
+    private var mCheckable = true
+
+    /**
+     * 背景和字体颜色，只在变化后设置一次
+     */
+    private val styleHolder = ChooseItemStyleHolder()
+
+    /**
+     * 标签背景的三种状态
+     */
+    open var chooseViewUnselectable: Int
+        get() = styleHolder.chooseViewUnselectable
+        set(value) {
+            styleHolder.chooseViewUnselectable = value
+        }
+    open var chooseViewSelected: Int
+        get() = styleHolder.chooseViewSelected
+        set(value) {
+            styleHolder.chooseViewSelected = value
+        }
+    open var chooseViewUnselected: Int
+        get() = styleHolder.chooseViewUnselected
+        set(value) {
+            styleHolder.chooseViewUnselected = value
+        }
+
+    /**
+     * 标签内部字体的三种颜色
+     */
+    open var unselectableTagColor: Int
+        get() = styleHolder.unselectableTagColor
+        set(value) {
+            styleHolder.unselectableTagColor = value
+        }
+    open var selectedTagColor: Int
+        get() = styleHolder.selectedTagColor
+        set(value) {
+            styleHolder.selectedTagColor = value
+        }
+    open var unselectedTagColor: Int
+        get() = styleHolder.unselectedTagColor
+        set(value) {
+            styleHolder.unselectedTagColor = value
+        }
+
+    init {
+        initView()
+    }
+
+    private fun initView() {
+        gravity = Gravity.CENTER
+        maxLines = 1
+        ellipsize = TextUtils.TruncateAt.END
+        minWidth = 70.dp2px
+        setTextSize(TypedValue.COMPLEX_UNIT_DIP, 12f)
+        setPadding(12.dp2px, 0, 12.dp2px, 0)
+        setTagWrapContent()
+        refreshDrawableState()
+    }
+
+    fun <T : ChooseTagView> updateStatus(newItemView: T) {
+        //将新的itemView的属性赋值到旧的itemView上
+        //复制一份，新旧标签不能共用同一个LayoutParams
+        val newLayoutParams = newItemView.layoutParams
+        if (newLayoutParams is ViewGroup.MarginLayoutParams) {
+            layoutParams = ViewGroup.MarginLayoutParams(newLayoutParams)
+        } else if (newLayoutParams != null) {
+            layoutParams = ViewGroup.MarginLayoutParams(newLayoutParams)
+        }
+        setPadding(
+            newItemView.paddingLeft,
+            newItemView.paddingTop,
+            newItemView.paddingRight,
+            newItemView.paddingBottom
+        )
+        //更新标签选中态背景
+        this.chooseViewUnselected = newItemView.chooseViewUnselected
+        this.chooseViewSelected = newItemView.chooseViewSelected
+        this.chooseViewUnselectable = newItemView.chooseViewUnselectable
+        //更新标签选中态字体颜色
+        this.unselectableTagColor = newItemView.unselectableTagColor
+        this.unselectedTagColor = newItemView.unselectedTagColor
+        this.selectedTagColor = newItemView.selectedTagColor
+    }
+
+    override fun updateStatusFrom(newItemView: IChooseItemView) {
+        if (newItemView is ChooseTagView) {
+            updateStatus(newItemView)
+        }
+    }
+
+    override fun <T : IChooseModel> initData(model: T) {
+        text = model.getChooseItemTitle()
+        setCheckable(model.getChooseItemCheckable())
+        setChecked(model.getChooseItemChecked())
+    }
+
+    override fun isOutdated(model: IChooseModel): Boolean {
+        return mCheckable != model.getChooseItemCheckable()
+                || isChecked() != model.getChooseItemChecked()
+                || text.toString() != model.getChooseItemTitle()
+    }
+
+    /**
+     * 设置共享的样式，和当前样式相同时不做处理
+     */
+    override fun applyStyle(style: ChooseItemStyle) {
+        if (styleHolder.isStyleApplied(style)) return
+        setTagLayoutParams(style.tagWidth, style.tagHeight)
+        setTagPadding(
+            style.tagPaddingLeft,
+            style.tagPaddingTop,
+            style.tagPaddingRight,
+            style.tagPaddingBottom
+        )
+        styleHolder.applyStyle(style, this, this)
+    }
+
+    fun getItemStyle() = styleHolder.itemStyle
+
+    /**
+     * 是否可点击
+     */
+    override fun isCheckable(): Boolean {
+        return mCheckable
+    }
+
+    /**
+     * 设置点击状态
+     */
+    override fun setCheckable(isCheckable: Boolean) {
+        mCheckable = isCheckable
+        applyStyleIfNeeded()
+        refreshDrawableState()
+    }
+
+    /**
+     * 获取选中状态
+     */
+    override fun isChecked(): Boolean {
+        return if (!mCheckable) {
+            false
+        } else {
+            mChecked
+        }
+    }
+
+    /**
+     * 设置选中状态
+     */
+    override fun setChecked(isChecked: Boolean) {
+        if (mCheckable) {
+            mChecked = isChecked
+        }
+        applyStyleIfNeeded()
+        refreshDrawableState()
+    }
+
+    /**
+     * 可选和选中通过drawable state表示，背景和字体颜色随状态自动切换
+     */
+    override fun onCreateDrawableState(extraSpace: Int): IntArray {
+        val drawableState =
+            super.onCreateDrawableState(extraSpace + ChooseItemStyleHolder.EXTRA_STATE_SPACE)
+        return ChooseItemStyleHolder.mergeCheckStates(drawableState, mCheckable, isChecked())
+    }
+
+    override fun onAttachedToWindow() {
+        super.onAttachedToWindow()
+        applyStyleIfNeeded()
+    }
+
+    private fun applyStyleIfNeeded() {
+        styleHolder.applyIfNeeded(this, this)
+    }
+
+    /**
+     * 变换选中状态
+     */
+    override fun toggle() {
+        if (mCheckable) {
+            setChecked(!mChecked)
+        }
+    }
+
+    /**
+     * 设置标签match_parent
+     * 用于单行平分
+     */
+    fun setTagMatchParent() {
+        setTagLayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, 28.dp2px)
+    }
+
+    /**
+     * 设置标签wrap_content
+     * 用于自适应
+     */
+    fun setTagWrapContent() {
+        setTagLayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, 28.dp2px)
+    }
+
+    /**
+     * 设置标签的宽高，外边距和[ChooseItemView]一致为5dp
+     */
+    fun setTagLayoutParams(width: Int, height: Int) {
+        styleHolder.clearItemStyle()
+        val layoutParams = ViewGroup.MarginLayoutParams(width, height)
+        val margin = 5.dp2px
+        layoutParams.setMargins(margin, margin, margin, margin)
+        this.layoutParams = layoutParams
+    }
+
+    /**
+     * 设置标签的padding
+     * 左上右下
+     */
+    fun setTagPadding(left: Int, top: Int, right: Int, bottom: Int) {
+        styleHolder.clearItemStyle()
+        setPadding(left, top, right, bottom)
+    }
+}
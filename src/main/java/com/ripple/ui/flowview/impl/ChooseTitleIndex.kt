@@ -0,0 +1,108 @@
+package com.ripple.ui.flowview.impl
+
+import java.util.BitSet
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/14 10:20
+ * Email: fanyafeng@live.cn
+ * Description: 标签标题的子串索引
+ *
+ * 1.设置数据时建立一次单字和双字到标签下标的倒排索引
+ * 2.查询时取出所有双字对应集合的交集作为候选，只有候选的标题需要再做一次contains校验
+ * 3.不区分大小写，规则和[matches]一致
+ */
+class ChooseTitleIndex {
+
+    companion object {
+        /**
+         * 逐个字符转为小写，不受系统语言影响
+         */
+        @JvmStatic
+        fun normalize(text: String): String {
+            val builder = StringBuilder(text.length)
+            for (char in text) {
+                builder.append(Character.toLowerCase(char))
+            }
+            return builder.toString()
+        }
+
+        /**
+         * 单个标题是否匹配query，和索引的查询结果一致
+         */
+        @JvmStatic
+        fun matches(title: String, query: String): Boolean {
+            return normalize(title).contains(normalize(query))
+        }
+    }
+
+    private var titles = arrayOf<String>()
+
+    private val unigramIndex = HashMap<Char, BitSet>()
+
+    private val bigramIndex = HashMap<Int, BitSet>()
+
+    fun build(titleList: List<String>) {
+        unigramIndex.clear()
+        bigramIndex.clear()
+        titles = Array(titleList.size) { normalize(titleList[it]) }
+        titles.forEachIndexed { index, title ->
+            for (charIndex in title.indices) {
+                unigramIndex.getOrPut(title[charIndex]) { BitSet() }.set(index)
+                if (charIndex > 0) {
+                    bigramIndex.getOrPut(bigramKey(title[charIndex - 1], title[charIndex])) { BitSet() }
+                        .set(index)
+                }
+            }
+        }
+    }
+
+    fun size() = titles.size
+
+    /**
+     * 查询标题包含query的标签，结果写入result，返回匹配的数量
+     * query为空时匹配所有标签
+     */
+    fun query(query: String, result: BitSet): Int {
+        result.clear()
+        val lowerQuery = normalize(query)
+        when (lowerQuery.length) {
+            0 -> {
+                result.set(0, titles.size)
+                return titles.size
+            }
+            1 -> {
+                unigramIndex[lowerQuery[0]]?.let { result.or(it) }
+                return result.cardinality()
+            }
+        }
+
+        for (charIndex in 1 until lowerQuery.length) {
+            val bits = bigramIndex[bigramKey(lowerQuery[charIndex - 1], lowerQuery[charIndex])]
+            if (bits == null) {
+                result.clear()
+                return 0
+            }
+            if (charIndex == 1) {
+                result.or(bits)
+            } else {
+                result.and(bits)
+            }
+        }
+
+        //两个字以内的双字索引就是准确结果，更长的需要校验顺序
+        if (lowerQuery.length > 2) {
+            var index = result.nextSetBit(0)
+            while (index >= 0) {
+                if (!titles[index].contains(lowerQuery)) {
+                    result.clear(index)
+                }
+                index = result.nextSetBit(index + 1)
+            }
+        }
+        return result.cardinality()
+    }
+
+    private fun bigramKey(first: Char, second: Char) = (first.toInt() shl 16) or second.toInt()
+}
@@ -0,0 +1,177 @@
+package com.ripple.ui.flowview.impl
+
+import java.util.BitSet
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/8 14:10
+ * Email: fanyafeng@live.cn
+ * Description: [FlowLayoutManager]的标签尺寸缓存
+ *
+ * 1.按position缓存标签包含margin和decoration的宽高
+ * 2.插入，删除和移动时平移已有的尺寸，只有新增和内容变化的标签标记为需要测量
+ * 3.需要测量的标签通过BitSet记录，测量时只遍历这部分
+ * 4.需要测量但是还没有尺寸的标签按照已测量标签的平均尺寸估算，用于屏幕外标签的分行
+ */
+class FlowItemSizeCache {
+
+    private var widths = IntArray(0)
+
+    private var heights = IntArray(0)
+
+    private var size = 0
+
+    /**
+     * 需要重新测量的position
+     */
+    private val dirty = BitSet()
+
+    /**
+     * 所有测量结果的累计，用于估算还没有测量的标签
+     */
+    private var measuredWidthSum = 0L
+
+    private var measuredHeightSum = 0L
+
+    private var measuredCount = 0
+
+    fun size() = size
+
+    fun getWidth(position: Int) = widths[position]
+
+    fun getHeight(position: Int) = heights[position]
+
+    /**
+     * 分行使用的宽度，还没有测量过的标签使用估算值
+     */
+    fun getLayoutWidth(position: Int): Int {
+        return if (isEstimated(position)) getEstimatedSize(measuredWidthSum) else widths[position]
+    }
+
+    fun getLayoutHeight(position: Int): Int {
+        return if (isEstimated(position)) getEstimatedSize(measuredHeightSum) else heights[position]
+    }
+
+    /**
+     * 重置为count个标签，全部需要测量
+     * 已有的尺寸保留，在重新测量之前作为估算值使用
+     */
+    fun reset(count: Int) {
+        ensureCapacity(count)
+        if (count > size) {
+            widths.fill(0, size, count)
+            heights.fill(0, size, count)
+        }
+        size = count
+        dirty.clear()
+        dirty.set(0, count)
+    }
+
+    fun set(position: Int, width: Int, height: Int) {
+        widths[position] = width
+        heights[position] = height
+        dirty.clear(position)
+        measuredWidthSum += width
+        measuredHeightSum += height
+        measuredCount++
+    }
+
+    /**
+     * 标记内容变化的标签
+     */
+    fun markDirty(start: Int, count: Int) {
+        val end = (start + count).coerceAtMost(size)
+        if (start < end) {
+            dirty.set(start, end)
+        }
+    }
+
+    fun isDirty(position: Int) = dirty.get(position)
+
+    fun hasDirty() = !dirty.isEmpty
+
+    /**
+     * 从position开始下一个需要测量的标签，没有时返回-1
+     */
+    fun nextDirty(position: Int): Int {
+        val next = dirty.nextSetBit(position)
+        return if (next in 0 until size) next else -1
+    }
+
+    /**
+     * 在start插入count个标签，之后的尺寸向后平移
+     */
+    fun insert(start: Int, count: Int) {
+        if (count <= 0) return
+        ensureCapacity(size + count)
+        System.arraycopy(widths, start, widths, start + count, size - start)
+        System.arraycopy(heights, start, heights, start + count, size - start)
+        widths.fill(0, start, start + count)
+        heights.fill(0, start, start + count)
+        shiftDirty(start, count)
+        size += count
+        dirty.set(start, start + count)
+    }
+
+    /**
+     * 删除start开始的count个标签，之后的尺寸向前平移
+     */
+    fun remove(start: Int, count: Int) {
+        if (count <= 0) return
+        val end = start + count
+        System.arraycopy(widths, end, widths, start, size - end)
+        System.arraycopy(heights, end, heights, start, size - end)
+        dirty.clear(start, end)
+        shiftDirty(end, -count)
+        size -= count
+    }
+
+    /**
+     * 把from开始的count个标签移动到to，和RecyclerView的notifyItemMoved一致
+     */
+    fun move(from: Int, to: Int, count: Int) {
+        if (from == to || count <= 0) return
+        val movedWidths = widths.copyOfRange(from, from + count)
+        val movedHeights = heights.copyOfRange(from, from + count)
+        val movedDirty = dirty.get(from, from + count)
+        remove(from, count)
+        insert(to, count)
+        System.arraycopy(movedWidths, 0, widths, to, count)
+        System.arraycopy(movedHeights, 0, heights, to, count)
+        dirty.clear(to, to + count)
+        var index = movedDirty.nextSetBit(0)
+        while (index >= 0) {
+            dirty.set(to + index)
+            index = movedDirty.nextSetBit(index + 1)
+        }
+    }
+
+    private fun isEstimated(position: Int): Boolean {
+        return widths[position] == 0 && heights[position] == 0 && dirty.get(position)
+    }
+
+    private fun getEstimatedSize(sum: Long): Int {
+        return if (measuredCount == 0) 0 else (sum / measuredCount).toInt()
+    }
+
+    /**
+     * start及之后的标记平移offset
+     */
+    private fun shiftDirty(start: Int, offset: Int) {
+        val shifted = dirty.get(start, size)
+        dirty.clear(start, size)
+        var index = shifted.nextSetBit(0)
+        while (index >= 0) {
+            dirty.set(start + offset + index)
+            index = shifted.nextSetBit(index + 1)
+        }
+    }
+
+    private fun ensureCapacity(capacity: Int) {
+        if (widths.size >= capacity) return
+        val newCapacity = capacity.coerceAtLeast(widths.size * 2)
+        widths = widths.copyOf(newCapacity)
+        heights = heights.copyOf(newCapacity)
+    }
+}
@@ -0,0 +1,347 @@
+package com.ripple.ui.flowview.impl
+
+import com.ripple.ui.flowview.IFlowView
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/7 10:12
+ * Email: fanyafeng@live.cn
+ * Description: 流式布局的分行计算
+ *
+ * 不依赖android的view，可以在子线程或者jvm单测中使用
+ * 1.begin开始一次计算，按顺序add子view的宽高和margin
+ * 2.end结束计算，得到行信息和内容宽高
+ * 3.layout根据gravity计算出每个子view的左上角坐标
+ *
+ * 所有数据都存放在可复用的IntArray中，缓存够用之后不再分配
+ * 同一个实例不是线程安全的，每个线程各自持有一个实例
+ */
+class FlowLayoutEngine {
+
+    companion object {
+        /**
+         * 不限制行数
+         */
+        const val UNLIMITED_LINE = -1
+
+        /**
+         * 不参与布局的子view，比如GONE
+         */
+        private const val SKIPPED = -1
+
+        private const val DEFAULT_CHILD_CAPACITY = 16
+
+        private const val DEFAULT_LINE_CAPACITY = 8
+    }
+
+    /**
+     * 子view包含margin的宽度，不参与布局的为[SKIPPED]
+     */
+    private var childWidth = IntArray(DEFAULT_CHILD_CAPACITY)
+
+    /**
+     * 子view包含margin的高度
+     */
+    private var childHeight = IntArray(DEFAULT_CHILD_CAPACITY)
+
+    /**
+     * 子view的左margin和上margin，两个一组
+     */
+    private var childMargin = IntArray(DEFAULT_CHILD_CAPACITY * 2)
+
+    /**
+     * 子view的左上角坐标，两个一组
+     */
+    private var positions = IntArray(DEFAULT_CHILD_CAPACITY * 2)
+
+    /**
+     * 每一行第一个子view的下标
+     * 多出的一位存放最后一行结束的下标
+     */
+    private var lineStart = IntArray(DEFAULT_LINE_CAPACITY + 1)
+
+    private var lineWidth = IntArray(DEFAULT_LINE_CAPACITY)
+
+    private var lineHeight = IntArray(DEFAULT_LINE_CAPACITY)
+
+    /**
+     * 每一行顶部相对内容顶部的偏移
+     */
+    private var lineTop = IntArray(DEFAULT_LINE_CAPACITY)
+
+    private var lineCount = 0
+
+    private var childCount = 0
+
+    /**
+     * 参与布局的子view结束下标，之后的子view超过了最大行数
+     */
+    private var laidOutEnd = 0
+
+    private var availableWidth = 0
+
+    private var maxLine = UNLIMITED_LINE
+
+    private var maxLineWidth = 0
+
+    private var contentHeight = 0
+
+    private var openLineStart = -1
+    private var openLineWidth = 0
+    private var openLineHeight = 0
+
+    private var full = false
+
+    /**
+     * 开始一次新的计算
+     */
+    @JvmOverloads
+    fun begin(availableWidth: Int, maxLine: Int = UNLIMITED_LINE) {
+        this.availableWidth = availableWidth
+        this.maxLine = maxLine
+        lineCount = 0
+        childCount = 0
+        laidOutEnd = 0
+        maxLineWidth = 0
+        contentHeight = 0
+        openLineStart = -1
+        openLineWidth = 0
+        openLineHeight = 0
+        full = maxLine == 0
+        lineStart[0] = 0
+    }
+
+    /**
+     * 按顺序添加一个子view
+     * 返回false说明已经超过最大行数，这个子view以及之后的都不会显示
+     */
+    @JvmOverloads
+    fun add(
+        width: Int,
+        height: Int,
+        leftMargin: Int = 0,
+        topMargin: Int = 0,
+        rightMargin: Int = 0,
+        bottomMargin: Int = 0
+    ): Boolean {
+        if (full) return false
+
+        val outerWidth = width + leftMargin + rightMargin
+        val outerHeight = height + topMargin + bottomMargin
+
+        if (openLineStart != -1 && openLineWidth + outerWidth > availableWidth) {
+            closeLine()
+            if (maxLine != UNLIMITED_LINE && lineCount >= maxLine) {
+                full = true
+                return false
+            }
+        }
+
+        val index = appendChild(outerWidth, outerHeight)
+        childMargin[index * 2] = leftMargin
+        childMargin[index * 2 + 1] = topMargin
+
+        if (openLineStart == -1) {
+            openLineStart = index
+        }
+        openLineWidth += outerWidth
+        openLineHeight = openLineHeight.coerceAtLeast(outerHeight)
+        laidOutEnd = childCount
+        return true
+    }
+
+    /**
+     * 添加一个不参与布局的子view，只占下标
+     */
+    fun skip() {
+        if (full) return
+        appendChild(SKIPPED, 0)
+        laidOutEnd = childCount
+    }
+
+    /**
+     * 结束计算，收尾最后一行
+     */
+    fun end() {
+        if (openLineStart != -1) {
+            closeLine()
+        }
+        lineStart[lineCount] = laidOutEnd
+    }
+
+    /**
+     * 最后一行是否已经排满，排满之后再添加的子view都不会显示
+     */
+    fun isFull() = full
+
+    /**
+     * 根据gravity计算每个子view的左上角坐标
+     * layoutWidth为布局时的可用宽度，offsetLeft和offsetTop一般为padding
+     */
+    fun layout(
+        gravity: IFlowView.FlowViewGravity,
+        layoutWidth: Int,
+        offsetLeft: Int,
+        offsetTop: Int
+    ) {
+        for (line in 0 until lineCount) {
+            val top = offsetTop + lineTop[line]
+            val currentLineWidth = lineWidth[line]
+            var left = when (gravity) {
+                IFlowView.FlowViewGravity.LEFT ->
+                    offsetLeft
+                IFlowView.FlowViewGravity.CENTER ->
+                    offsetLeft + (layoutWidth - currentLineWidth) / 2
+                IFlowView.FlowViewGravity.RIGHT ->
+                    offsetLeft + layoutWidth - currentLineWidth
+            }
+
+            for (index in lineStart[line] until lineStart[line + 1]) {
+                val outerWidth = childWidth[index]
+                if (outerWidth == SKIPPED) continue
+                positions[index * 2] = left + childMargin[index * 2]
+                positions[index * 2 + 1] = top + childMargin[index * 2 + 1]
+                left += outerWidth
+            }
+        }
+    }
+
+    /**
+     * 一次性计算，适合子线程预先计算高度或者单测
+     * margins为左上右下四个一组，可以为空
+     * 返回的数组为每个子view的左上角坐标，两个一组，只有前[getLaidOutEnd]个有效
+     */
+    @JvmOverloads
+    fun compute(
+        count: Int,
+        widths: IntArray,
+        heights: IntArray,
+        margins: IntArray?,
+        availableWidth: Int,
+        maxLine: Int = UNLIMITED_LINE,
+        gravity: IFlowView.FlowViewGravity = IFlowView.FlowViewGravity.LEFT
+    ): IntArray {
+        begin(availableWidth, maxLine)
+        for (index in 0 until count) {
+            val added = if (margins == null) {
+                add(widths[index], heights[index])
+            } else {
+                add(
+                    widths[index],
+                    heights[index],
+                    margins[index * 4],
+                    margins[index * 4 + 1],
+                    margins[index * 4 + 2],
+                    margins[index * 4 + 3]
+                )
+            }
+            if (!added) break
+        }
+        end()
+        layout(gravity, availableWidth, 0, 0)
+        return positions
+    }
+
+    fun getLineCount() = lineCount
+
+    fun getLineStart(line: Int) = lineStart[line]
+
+    fun getLineEnd(line: Int) = lineStart[line + 1]
+
+    fun getLineWidth(line: Int) = lineWidth[line]
+
+    fun getLineHeight(line: Int) = lineHeight[line]
+
+    fun getLineTop(line: Int) = lineTop[line]
+
+    /**
+     * 查找与纵向偏移y相交的行，超出内容时返回首行或末行
+     */
+    fun findLineAt(y: Int): Int {
+        var low = 0
+        var high = lineCount - 1
+        while (low < high) {
+            val mid = (low + high + 1) ushr 1
+            if (lineTop[mid] <= y) {
+                low = mid
+            } else {
+                high = mid - 1
+            }
+        }
+        return low
+    }
+
+    /**
+     * 计算时使用的可用宽度
+     */
+    fun getAvailableWidth() = availableWidth
+
+    /**
+     * 最宽一行的宽度
+     */
+    fun getContentWidth() = maxLineWidth
+
+    /**
+     * 所有行的高度和
+     */
+    fun getContentHeight() = contentHeight
+
+    /**
+     * 已经添加的子view个数
+     */
+    fun getChildCount() = childCount
+
+    /**
+     * 参与布局的子view结束下标
+     */
+    fun getLaidOutEnd() = laidOutEnd
+
+    /**
+     * 子view是否参与布局
+     */
+    fun isLaidOut(index: Int) = index < laidOutEnd && childWidth[index] != SKIPPED
+
+    fun getChildLeft(index: Int) = positions[index * 2]
+
+    fun getChildTop(index: Int) = positions[index * 2 + 1]
+
+    /**
+     * 左上角坐标数组，两个一组，数组会被下一次计算复用
+     */
+    fun getPositions() = positions
+
+    private fun appendChild(outerWidth: Int, outerHeight: Int): Int {
+        if (childCount >= childWidth.size) {
+            val capacity = childWidth.size * 2
+            childWidth = childWidth.copyOf(capacity)
+            childHeight = childHeight.copyOf(capacity)
+            childMargin = childMargin.copyOf(capacity * 2)
+            positions = positions.copyOf(capacity * 2)
+        }
+        childWidth[childCount] = outerWidth
+        childHeight[childCount] = outerHeight
+        return childCount++
+    }
+
+    private fun closeLine() {
+        if (lineCount + 1 >= lineStart.size) {
+            val capacity = lineWidth.size * 2
+            lineStart = lineStart.copyOf(capacity + 1)
+            lineWidth = lineWidth.copyOf(capacity)
+            lineHeight = lineHeight.copyOf(capacity)
+            lineTop = lineTop.copyOf(capacity)
+        }
+        lineStart[lineCount] = openLineStart
+        lineTop[lineCount] = contentHeight
+        lineWidth[lineCount] = openLineWidth
+        lineHeight[lineCount] = openLineHeight
+        lineCount++
+        maxLineWidth = maxLineWidth.coerceAtLeast(openLineWidth)
+        contentHeight += openLineHeight
+
+        openLineStart = -1
+        openLineWidth = 0
+        openLineHeight = 0
+    }
+}
@@ -0,0 +1,381 @@
+package com.ripple.ui.flowview.impl
+
+import android.graphics.Rect
+import android.view.View
+import android.view.ViewGroup
+import androidx.recyclerview.widget.RecyclerView
+import com.ripple.ui.flowview.IFlowView
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/8 14:30
+ * Email: fanyafeng@live.cn
+ * Description: 流式布局的LayoutManager
+ *
+ * 和[FlowView]的换行以及[IFlowView.FlowViewGravity]规则一致，
+ * 但是只有屏幕内的标签会被添加，滑出屏幕的会被回收复用
+ * 适合上千个标签的场景，内存和inflate的开销不随标签数量增长
+ *
+ * 1.标签尺寸缓存在[FlowItemSizeCache]中，插入，删除和移动时平移缓存，
+ * 只测量显示范围内新增和内容变化的标签，测量完立即回收
+ * 2.分行使用[FlowLayoutEngine]，修改最大行数只需要重新分行
+ * 3.滑动时只添加和回收进出屏幕的标签，进入屏幕的标签在这时才测量
+ * 4.只更新选中态的局部刷新[ChooseFlowAdapter.PAYLOAD_CHECK_STATUS]不会重新测量
+ * notifyDataSetChanged无法知道哪些标签变化，屏幕外的标签先按照旧的尺寸或者平均尺寸分行，
+ * 滑动到时再测量，行的位置可能会有少量变化，尽量使用局部刷新
+ * 高度不受限制时，比如放在NestedScrollView中，会测量并添加所有标签，高度为全部行的高度
+ * 不支持预测动画，增删标签时只有简单的淡入淡出和位移动画
+ */
+open class FlowLayoutManager : RecyclerView.LayoutManager(), IFlowView {
+
+    private val layoutEngine = FlowLayoutEngine()
+
+    /**
+     * 最大显示行数
+     */
+    private var maxLine = FlowLayoutEngine.UNLIMITED_LINE
+
+    private var mGravity = IFlowView.FlowViewGravity.LEFT
+
+    /**
+     * 纵向滑动距离
+     */
+    private var scrollOffset = 0
+
+    /**
+     * 需要滑动到的位置
+     */
+    private var pendingScrollPosition = RecyclerView.NO_POSITION
+
+    /**
+     * 标签包含margin和decoration的宽高缓存
+     */
+    private val sizeCache = FlowItemSizeCache()
+
+    /**
+     * 尺寸没有变化，只是分行条件变化时需要重新分行
+     */
+    private var linesDirty = true
+
+    override fun generateDefaultLayoutParams(): RecyclerView.LayoutParams {
+        return RecyclerView.LayoutParams(
+            ViewGroup.LayoutParams.WRAP_CONTENT,
+            ViewGroup.LayoutParams.WRAP_CONTENT
+        )
+    }
+
+    override fun isAutoMeasureEnabled(): Boolean {
+        return true
+    }
+
+    override fun canScrollVertically(): Boolean {
+        return true
+    }
+
+    override fun onLayoutChildren(recycler: RecyclerView.Recycler, state: RecyclerView.State) {
+        if (state.itemCount == 0) {
+            removeAndRecycleAllViews(recycler)
+            scrollOffset = 0
+            return
+        }
+        val availableWidth = width - paddingLeft - paddingRight
+        if (sizeCache.size() != state.itemCount) {
+            //数据变化的回调和实际数量不一致时全部重新测量
+            sizeCache.reset(state.itemCount)
+        }
+        if (sizeCache.hasDirty() || linesDirty || availableWidth != layoutEngine.getAvailableWidth()) {
+            computeLines(availableWidth)
+        }
+        layoutEngine.layout(mGravity, availableWidth, paddingLeft, paddingTop)
+
+        detachAndScrapAttachedViews(recycler)
+        if (pendingScrollPosition != RecyclerView.NO_POSITION) {
+            //先测量目标标签，保证滑动到的行位置准确
+            if (pendingScrollPosition < sizeCache.size() && sizeCache.isDirty(pendingScrollPosition)) {
+                measureItem(recycler, pendingScrollPosition)
+                computeLines(availableWidth)
+                layoutEngine.layout(mGravity, availableWidth, paddingLeft, paddingTop)
+            }
+            scrollOffset = getLineTopOfPosition(pendingScrollPosition)
+            pendingScrollPosition = RecyclerView.NO_POSITION
+        }
+        scrollOffset = scrollOffset.coerceIn(0, getMaxScrollOffset())
+        measureVisibleItems(recycler)
+        fill(recycler)
+    }
+
+    /**
+     * 高度不受限制时RecyclerView只会使用已添加标签的范围，这里使用全部行的高度
+     */
+    override fun setMeasuredDimension(childrenBounds: Rect, wSpec: Int, hSpec: Int) {
+        if (View.MeasureSpec.getMode(hSpec) != View.MeasureSpec.UNSPECIFIED) {
+            super.setMeasuredDimension(childrenBounds, wSpec, hSpec)
+            return
+        }
+        val measuredWidth = chooseSize(
+            wSpec,
+            childrenBounds.width() + paddingLeft + paddingRight,
+            minimumWidth
+        )
+        setMeasuredDimension(
+            measuredWidth,
+            layoutEngine.getContentHeight() + paddingTop + paddingBottom
+        )
+    }
+
+    override fun scrollVerticallyBy(
+        dy: Int,
+        recycler: RecyclerView.Recycler,
+        state: RecyclerView.State
+    ): Int {
+        if (childCount == 0 || dy == 0) return 0
+        val target = (scrollOffset + dy).coerceIn(0, getMaxScrollOffset())
+        val consumed = target - scrollOffset
+        if (consumed == 0) return 0
+        scrollOffset = target
+        offsetChildrenVertical(-consumed)
+        if (measureVisibleItems(recycler)) {
+            //新进入屏幕的标签尺寸和估算不一致，已添加的标签位置也可能变化
+            detachAndScrapAttachedViews(recycler)
+        }
+        fill(recycler)
+        return consumed
+    }
+
+    override fun scrollToPosition(position: Int) {
+        pendingScrollPosition = position
+        requestLayout()
+    }
+
+    override fun computeVerticalScrollOffset(state: RecyclerView.State): Int {
+        return scrollOffset
+    }
+
+    override fun computeVerticalScrollRange(state: RecyclerView.State): Int {
+        return layoutEngine.getContentHeight() + paddingTop + paddingBottom
+    }
+
+    override fun computeVerticalScrollExtent(state: RecyclerView.State): Int {
+        return height
+    }
+
+    /**
+     * 只支持简单动画，不会进行pre-layout
+     */
+    override fun supportsPredictiveItemAnimations(): Boolean {
+        return false
+    }
+
+    override fun onAdapterChanged(
+        oldAdapter: RecyclerView.Adapter<*>?,
+        newAdapter: RecyclerView.Adapter<*>?
+    ) {
+        sizeCache.reset(newAdapter?.itemCount ?: 0)
+        scrollOffset = 0
+    }
+
+    override fun onItemsChanged(recyclerView: RecyclerView) {
+        sizeCache.reset(recyclerView.adapter?.itemCount ?: 0)
+    }
+
+    override fun onItemsAdded(recyclerView: RecyclerView, positionStart: Int, itemCount: Int) {
+        if (positionStart <= sizeCache.size()) {
+            sizeCache.insert(positionStart, itemCount)
+        } else {
+            sizeCache.reset(recyclerView.adapter?.itemCount ?: 0)
+        }
+    }
+
+    override fun onItemsRemoved(recyclerView: RecyclerView, positionStart: Int, itemCount: Int) {
+        if (positionStart + itemCount <= sizeCache.size()) {
+            sizeCache.remove(positionStart, itemCount)
+            linesDirty = true
+        } else {
+            sizeCache.reset(recyclerView.adapter?.itemCount ?: 0)
+        }
+    }
+
+    override fun onItemsUpdated(
+        recyclerView: RecyclerView,
+        positionStart: Int,
+        itemCount: Int,
+        payload: Any?
+    ) {
+        //只更新选中态时尺寸不变，不需要重新测量
+        if (payload === ChooseFlowAdapter.PAYLOAD_CHECK_STATUS) return
+        sizeCache.markDirty(positionStart, itemCount)
+    }
+
+    override fun onItemsMoved(recyclerView: RecyclerView, from: Int, to: Int, itemCount: Int) {
+        val size = sizeCache.size()
+        if (from + itemCount <= size && to + itemCount <= size) {
+            sizeCache.move(from, to, itemCount)
+            linesDirty = true
+        } else {
+            sizeCache.reset(recyclerView.adapter?.itemCount ?: 0)
+        }
+    }
+
+    override fun setGravity(gravity: IFlowView.FlowViewGravity) {
+        if (mGravity != gravity) {
+            mGravity = gravity
+            requestLayout()
+        }
+    }
+
+    override fun setMaxLine(maxLine: Int) {
+        if (this.maxLine != maxLine) {
+            this.maxLine = maxLine
+            linesDirty = true
+            requestLayout()
+        }
+    }
+
+    /**
+     * 获取因为最大行数没有显示的标签数量
+     */
+    fun getHiddenItemCount(): Int {
+        return (sizeCache.size() - layoutEngine.getLaidOutEnd()).coerceAtLeast(0)
+    }
+
+    /**
+     * 只测量显示范围内新增和内容变化的标签，测量完立即回收
+     * 测量后尺寸和估算不一致会重新分行，显示范围可能变化，直到范围内的标签都测量完成
+     * 返回是否有标签被测量
+     */
+    private fun measureVisibleItems(recycler: RecyclerView.Recycler): Boolean {
+        var measured = false
+        while (sizeCache.hasDirty() && layoutEngine.getLineCount() > 0) {
+            var position = sizeCache.nextDirty(getVisibleStart())
+            val end = getVisibleEnd()
+            if (position < 0 || position >= end) break
+            while (position in 0 until end) {
+                measureItem(recycler, position)
+                position = sizeCache.nextDirty(position + 1)
+            }
+            measured = true
+            computeLines(layoutEngine.getAvailableWidth())
+            layoutEngine.layout(mGravity, layoutEngine.getAvailableWidth(), paddingLeft, paddingTop)
+            scrollOffset = scrollOffset.coerceIn(0, getMaxScrollOffset())
+        }
+        return measured
+    }
+
+    /**
+     * 同一类型的标签只需要一个view就可以测量完全部数据
+     */
+    private fun measureItem(recycler: RecyclerView.Recycler, position: Int) {
+        val view = recycler.getViewForPosition(position)
+        measureChildWithMargins(view, 0, 0)
+        val lp = view.layoutParams as RecyclerView.LayoutParams
+        sizeCache.set(
+            position,
+            getDecoratedMeasuredWidth(view) + lp.leftMargin + lp.rightMargin,
+            getDecoratedMeasuredHeight(view) + lp.topMargin + lp.bottomMargin
+        )
+        recycler.recycleView(view)
+    }
+
+    /**
+     * 还没有测量的标签使用估算的尺寸分行
+     */
+    private fun computeLines(availableWidth: Int) {
+        layoutEngine.begin(availableWidth, maxLine)
+        for (position in 0 until sizeCache.size()) {
+            if (!layoutEngine.add(
+                    sizeCache.getLayoutWidth(position),
+                    sizeCache.getLayoutHeight(position)
+                )
+            ) break
+        }
+        layoutEngine.end()
+        linesDirty = false
+    }
+
+    /**
+     * 高度不受限制时显示全部行
+     */
+    private fun getVisibleHeight(): Int {
+        return if (heightMode == View.MeasureSpec.UNSPECIFIED) {
+            layoutEngine.getContentHeight() + paddingTop + paddingBottom
+        } else {
+            height
+        }
+    }
+
+    private fun getVisibleStart(): Int {
+        val visibleTop = scrollOffset - paddingTop
+        return layoutEngine.getLineStart(layoutEngine.findLineAt(visibleTop.coerceAtLeast(0)))
+    }
+
+    private fun getVisibleEnd(): Int {
+        val visibleBottom = scrollOffset - paddingTop + getVisibleHeight()
+        return layoutEngine.getLineEnd(layoutEngine.findLineAt((visibleBottom - 1).coerceAtLeast(0)))
+    }
+
+    private fun getMaxScrollOffset(): Int {
+        val contentHeight = layoutEngine.getContentHeight() + paddingTop + paddingBottom
+        return (contentHeight - getVisibleHeight()).coerceAtLeast(0)
+    }
+
+    private fun getLineTopOfPosition(position: Int): Int {
+        for (line in 0 until layoutEngine.getLineCount()) {
+            if (position < layoutEngine.getLineEnd(line)) {
+                return layoutEngine.getLineTop(line)
+            }
+        }
+        return getMaxScrollOffset()
+    }
+
+    /**
+     * 根据当前滑动距离回收屏幕外的标签，添加进入屏幕的标签
+     * 已添加的标签始终是按position连续排列的
+     */
+    private fun fill(recycler: RecyclerView.Recycler) {
+        if (layoutEngine.getLineCount() == 0) {
+            removeAndRecycleAllViews(recycler)
+            return
+        }
+        val start = getVisibleStart()
+        val end = getVisibleEnd()
+
+        for (index in childCount - 1 downTo 0) {
+            val position = getPosition(getChildAt(index) ?: continue)
+            if (position < start || position >= end) {
+                removeAndRecycleViewAt(index, recycler)
+            }
+        }
+
+        val attachedStart: Int
+        val attachedEnd: Int
+        if (childCount == 0) {
+            attachedStart = end
+            attachedEnd = end
+        } else {
+            attachedStart = getPosition(getChildAt(0)!!)
+            attachedEnd = getPosition(getChildAt(childCount - 1)!!) + 1
+        }
+
+        for (position in start until attachedStart) {
+            layoutItem(recycler.getViewForPosition(position), position, position - start)
+        }
+        for (position in attachedEnd until end) {
+            layoutItem(recycler.getViewForPosition(position), position, -1)
+        }
+    }
+
+    private fun layoutItem(view: View, position: Int, index: Int) {
+        addView(view, index)
+        measureChildWithMargins(view, 0, 0)
+        val left = layoutEngine.getChildLeft(position)
+        val top = layoutEngine.getChildTop(position) - scrollOffset
+        layoutDecoratedWithMargins(
+            view,
+            left,
+            top,
+            left + sizeCache.getWidth(position),
+            top + sizeCache.getHeight(position)
+        )
+    }
+}
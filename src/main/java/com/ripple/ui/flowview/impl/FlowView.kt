@@ -25,33 +25,37 @@ open class FlowView @JvmOverloads constructor(
     ), IFlowView {
 
     /**
-     * 所有的横行和纵行view
+     * 分行计算，测量和布局共用
      */
-    val allViews: MutableList<MutableList<View>> = arrayListOf()
+    private val layoutEngine = FlowLayoutEngine()
 
     /**
-     * 每一行的高度
+     * 最大显示行数
      */
-    private val mLineHeight: MutableList<Int> = arrayListOf()
+    private var maxLine = -1
+
+    private var maxHeight = 0
+
+    var mGravity = IFlowView.FlowViewGravity.LEFT
 
     /**
-     * 每一行的宽度
+     * 子view或者最大行数发生变化后行模型需要重新计算
      */
-    private val mLineWidth: MutableList<Int> = arrayListOf()
+    private var lineModelDirty = true
 
     /**
-     * 每一横行的view
+     * 已经测量过的子view结束下标
+     * 设置了最大行数时最后一行排满就不再测量后面的子view
      */
-    private var lineViews: MutableList<View> = arrayListOf()
+    private var measuredEnd = 0
 
     /**
-     * 最大显示行数
+     * 上一次布局的子view结束下标，用来收起超出最大行数的子view
      */
-    private var maxLine = -1
-
-    private var maxHeight = 0
+    private var lastLaidOutEnd = 0
 
-    var mGravity = IFlowView.FlowViewGravity.LEFT
+    private var lastWidthMeasureSpec = 0
+    private var lastHeightMeasureSpec = 0
 
     init {
 
@@ -71,178 +75,145 @@ open class FlowView @JvmOverloads constructor(
         val sizeHeight = MeasureSpec.getSize(heightMeasureSpec)
         val modeHeight = MeasureSpec.getMode(heightMeasureSpec)
 
-        var width = 0
-        var height = 0
+        lastWidthMeasureSpec = widthMeasureSpec
+        lastHeightMeasureSpec = heightMeasureSpec
+        measuredEnd = 0
 
-        var lineWidth = 0
-        var lineHeight = 0
+        /**
+         * 测量和布局共用同一份行模型，这里计算一次
+         * 子view在分行的同时测量，超过最大行数的不测量
+         */
+        computeLines(sizeWidth - paddingLeft - paddingRight)
 
+        setMeasuredDimension(
+            if (modeWidth == MeasureSpec.EXACTLY) sizeWidth else layoutEngine.getContentWidth() + paddingLeft + paddingRight,
+            if (modeHeight == MeasureSpec.EXACTLY) sizeHeight else layoutEngine.getContentHeight() + paddingTop + paddingBottom
+        )
 
-        val mCount = childCount
+    }
 
-        /**
-         * 行数
-         */
-        var lineCount = 1
-        (0 until mCount).forEach {
-            val child = getChildAt(it)
+    /**
+     * 根据子view的测量结果进行分行
+     * 超过最大行数的子view不参与布局
+     * 还没有测量过的子view使用上一次的MeasureSpec补测
+     */
+    private fun computeLines(availableWidth: Int) {
+        layoutEngine.begin(availableWidth, maxLine)
+        for (index in 0 until childCount) {
+            val child = getChildAt(index)
             if (child.visibility == View.GONE) {
-                if (it == mCount - 1) {
-                    width = lineWidth.coerceAtLeast(width)
-                    height += lineHeight
-                    return@forEach
-                }
-            }
-            measureChild(child, widthMeasureSpec, heightMeasureSpec)
-            val lp = child.layoutParams as MarginLayoutParams
-            val childWidth = child.measuredWidth + lp.leftMargin + lp.rightMargin
-            val childHeight = child.measuredHeight + lp.topMargin + lp.bottomMargin
-
-            if (maxLine != -1 && lineCount <= maxLine) {
-                if (lineWidth + childWidth > sizeWidth - paddingLeft - paddingRight) {
-                    lineCount++
-                    width = width.coerceAtLeast(lineWidth)
-                    lineWidth = childWidth
-                    height += lineHeight
-                    lineHeight = childHeight
-                } else {
-                    lineWidth += childWidth
-                    lineHeight = lineHeight.coerceAtLeast(childHeight)
-                }
-                if (lineCount == maxLine + 1) {
-                    lineWidth = 0
-                    lineHeight = 0
-                }
-            } else if (maxLine == -1) {
-                if (lineWidth + childWidth > sizeWidth - paddingLeft - paddingRight) {
-                    lineCount++
-                    width = width.coerceAtLeast(lineWidth)
-                    lineWidth = childWidth
-                    height += lineHeight
-                    lineHeight = childHeight
-                } else {
-                    lineWidth += childWidth
-                    lineHeight = lineHeight.coerceAtLeast(childHeight)
-                }
+                layoutEngine.skip()
+                continue
             }
 
-            if (it == mCount - 1) {
-                width = lineWidth.coerceAtLeast(width)
-                height += lineHeight
+            if (index >= measuredEnd) {
+                measureChild(child, lastWidthMeasureSpec, lastHeightMeasureSpec)
+                measuredEnd = index + 1
             }
+
+            val lp = child.layoutParams as MarginLayoutParams
+            val added = layoutEngine.add(
+                child.measuredWidth,
+                child.measuredHeight,
+                lp.leftMargin,
+                lp.topMargin,
+                lp.rightMargin,
+                lp.bottomMargin
+            )
+            if (!added) break
         }
-        setMeasuredDimension(
-            if (modeWidth == MeasureSpec.EXACTLY) sizeWidth else width + paddingLeft + paddingRight,
-            if (modeHeight == MeasureSpec.EXACTLY) sizeHeight else height + paddingTop + paddingRight
-        )
+        layoutEngine.end()
+        lineModelDirty = false
+    }
 
+    /**
+     * 贪心分行在可用宽度位于[最宽行, 计算时宽度]区间内时结果不变
+     * 所以wrap_content时布局宽度变窄也不需要重新分行
+     */
+    private fun isLineModelValid(availableWidth: Int): Boolean {
+        if (lineModelDirty) return false
+        val lineModelWidth = layoutEngine.getAvailableWidth()
+        return availableWidth == lineModelWidth ||
+                (availableWidth in layoutEngine.getContentWidth()..lineModelWidth)
     }
 
 
     override fun onLayout(changed: Boolean, l: Int, t: Int, r: Int, b: Int) {
-        allViews.clear()
-        mLineHeight.clear()
-        mLineWidth.clear()
-        lineViews.clear()
-
-        val mWidth = width
-        var lineWidth = 0
-        var lineHeight = 0
-        val mCount = childCount
+        val availableWidth = width - paddingLeft - paddingRight
+        if (!isLineModelValid(availableWidth)) {
+            computeLines(availableWidth)
+        }
 
-        var mLineCount = 1
+        layoutEngine.layout(mGravity, availableWidth, paddingLeft, paddingTop)
 
-        (0 until mCount).forEach {
-            val child = getChildAt(it)
-            if (child.visibility == View.GONE) return@forEach
+        for (index in 0 until layoutEngine.getLaidOutEnd()) {
+            if (!layoutEngine.isLaidOut(index)) continue
+            val child = getChildAt(index)
+            val lc = layoutEngine.getChildLeft(index)
+            val tc = layoutEngine.getChildTop(index)
+            child.layout(lc, tc, lc + child.measuredWidth, tc + child.measuredHeight)
+        }
 
-            val lp = child.layoutParams as MarginLayoutParams
-            val childWidth = child.measuredWidth
-            val childHeight = child.measuredHeight
-
-            if (maxLine != -1 && mLineCount <= maxLine) {
-                if (childWidth + lineWidth + lp.leftMargin + lp.rightMargin > width - paddingLeft - paddingRight) {
-                    mLineHeight.add(lineHeight)
-                    allViews.add(lineViews)
-                    mLineWidth.add(lineWidth)
-
-                    lineWidth = 0
-                    lineHeight = childHeight + lp.topMargin + lp.bottomMargin
-                    lineViews = mutableListOf()
-                    mLineCount++
-                }
-
-                lineWidth += childWidth + lp.leftMargin + lp.rightMargin
-                lineHeight = lineHeight.coerceAtLeast(childHeight + lp.topMargin + lp.bottomMargin)
-                lineViews.add(child)
-            } else if (maxLine == -1) {
-                if (childWidth + lineWidth + lp.leftMargin + lp.rightMargin > width - paddingLeft - paddingRight) {
-                    mLineHeight.add(lineHeight)
-                    allViews.add(lineViews)
-                    mLineWidth.add(lineWidth)
-
-                    lineWidth = 0
-                    lineHeight = childHeight + lp.topMargin + lp.bottomMargin
-                    lineViews = mutableListOf()
-                    mLineCount++
-                }
-
-                lineWidth += childWidth + lp.leftMargin + lp.rightMargin
-                lineHeight = lineHeight.coerceAtLeast(childHeight + lp.topMargin + lp.bottomMargin)
-                lineViews.add(child)
-            }
+        /**
+         * 之前显示过现在超出最大行数的子view收起，避免停留在旧的位置
+         */
+        val laidOutEnd = layoutEngine.getLaidOutEnd()
+        for (index in laidOutEnd until lastLaidOutEnd.coerceAtMost(childCount)) {
+            getChildAt(index).layout(0, 0, 0, 0)
         }
-        mLineHeight.add(lineHeight)
-        mLineWidth.add(lineWidth)
-        allViews.add(lineViews)
-
-        var mPaddingLeft = paddingLeft
-        var mPaddingTop = paddingTop
-        val lineNum = allViews.size
-
-        (0 until lineNum).forEach {
-            lineViews = allViews[it]
-            lineHeight = mLineHeight[it]
-
-            val currentLineWidth = mLineWidth[it]
-            mPaddingLeft = when (mGravity) {
-                IFlowView.FlowViewGravity.LEFT ->
-                    paddingLeft
-                IFlowView.FlowViewGravity.CENTER ->
-                    (width - currentLineWidth) / 2 + paddingLeft
-                IFlowView.FlowViewGravity.RIGHT ->
-                    width - currentLineWidth + paddingLeft
-            }
+        lastLaidOutEnd = laidOutEnd
 
-            val lineCount = lineViews.size
-            (0 until lineCount).forEach innerForEach@{ i ->
-                val child = lineViews[i]
-                if (child.visibility == View.GONE) {
-                    return@innerForEach
-                }
+    }
 
-                val lp = child.layoutParams as MarginLayoutParams
-                val lc = mPaddingLeft + lp.leftMargin
-                val tc = mPaddingTop + lp.topMargin
-                val rc = lc + child.measuredWidth
-                val bc = tc + child.measuredHeight
+    /**
+     * 获取当前显示的行数
+     */
+    fun getLineCount() = layoutEngine.getLineCount()
 
-                child.layout(lc, tc, rc, bc)
+    /**
+     * 获取某一行第一个子view的下标
+     */
+    fun getLineStartIndex(line: Int) = layoutEngine.getLineStart(line)
 
-                mPaddingLeft += child.measuredWidth + lp.leftMargin + lp.rightMargin
+    /**
+     * 获取因为最大行数没有显示的子view数量，不包含GONE的
+     * 可以用来显示"+N"
+     */
+    fun getHiddenChildCount(): Int {
+        var count = 0
+        for (index in layoutEngine.getLaidOutEnd() until childCount) {
+            if (getChildAt(index).visibility != View.GONE) {
+                count++
             }
-
-            mPaddingTop += lineHeight
         }
+        return count
+    }
+
+    override fun onViewAdded(child: View?) {
+        super.onViewAdded(child)
+        lineModelDirty = true
+        lastLaidOutEnd = childCount
+    }
 
+    override fun onViewRemoved(child: View?) {
+        super.onViewRemoved(child)
+        lineModelDirty = true
+        lastLaidOutEnd = childCount
     }
 
     override fun setGravity(gravity: IFlowView.FlowViewGravity) {
-        this.mGravity = gravity
+        if (this.mGravity != gravity) {
+            this.mGravity = gravity
+            requestLayout()
+        }
     }
 
     override fun setMaxLine(maxLine: Int) {
-        this.maxLine = maxLine
+        if (this.maxLine != maxLine) {
+            this.maxLine = maxLine
+            lineModelDirty = true
+            requestLayout()
+        }
     }
 
     override fun generateLayoutParams(attrs: AttributeSet?): LayoutParams {
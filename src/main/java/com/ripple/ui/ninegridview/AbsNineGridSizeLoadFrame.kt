@@ -0,0 +1,19 @@
+package com.ripple.ui.ninegridview
+
+import android.content.Context
+import com.ripple.ui.widget.RippleImageView
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/18 10:40
+ * Email: fanyafeng@live.cn
+ * Description: 带目标尺寸的显示图片代理的基类
+ *
+ * 不带尺寸的displayImage使用格子当前的宽高，子类只需要实现带尺寸的displayImage
+ */
+abstract class AbsNineGridSizeLoadFrame : NineGridSizeLoadFrame {
+
+    override fun displayImage(context: Context, path: String, imageView: RippleImageView) {
+        displayImage(context, path, imageView, imageView.width, imageView.height)
+    }
+}
@@ -0,0 +1,29 @@
+package com.ripple.ui.ninegridview
+
+import android.content.Context
+import com.ripple.ui.widget.RippleImageView
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/18 10:20
+ * Email: fanyafeng@live.cn
+ * Description: 带目标尺寸的显示图片代理
+ *
+ * 九宫格在测量时已经算好了每个格子的宽高，单张图片时为单图的宽高
+ * 加载时直接传给图片框架，不需要等待布局，可以直接按照目标尺寸采样解码
+ * 格子尺寸变化时也会重新加载
+ * 不需要单独实现不带尺寸的displayImage时可以继承[AbsNineGridSizeLoadFrame]
+ */
+interface NineGridSizeLoadFrame : NineGridLoadFrame {
+
+    /**
+     * 通过外部图片框架按照目标尺寸进行图片的显示
+     */
+    fun displayImage(
+        context: Context,
+        path: String,
+        imageView: RippleImageView,
+        width: Int,
+        height: Int
+    )
+}
@@ -0,0 +1,28 @@
+package com.ripple.ui.ninegridview
+
+import android.content.Context
+import android.graphics.Bitmap
+import java.io.Serializable
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/19 10:10
+ * Email: fanyafeng@live.cn
+ * Description: 九宫格缩略图存储
+ * simple:[NineGridDiskThumbnailStore]
+ *
+ * 保存按照格子尺寸缩小后的图片，再次显示时不需要解码原图
+ * 会在子线程调用，自定义的[NineGridLoadFrame]也可以直接使用
+ */
+interface NineGridThumbnailStore : Serializable {
+
+    /**
+     * 获取缩略图，没有或者原图已经修改时返回null
+     */
+    fun get(context: Context, path: String, width: Int, height: Int): Bitmap?
+
+    /**
+     * 保存缩略图
+     */
+    fun put(context: Context, path: String, width: Int, height: Int, bitmap: Bitmap)
+}
@@ -3,6 +3,8 @@ package com.ripple.ui.ninegridview
 import android.content.Context
 import android.widget.ImageView
 import com.ripple.ui.widget.RippleImageView
+import com.ripple.ui.widget.RippleViewPool
+import com.ripple.ui.widget.RippleViewWarmup
 import java.io.Serializable
 
 /**
@@ -16,11 +18,37 @@ abstract class NineGridViewAdapter @JvmOverloads constructor(
     private var list: List<NineItem> = mutableListOf()
 ) : Serializable {
 
+    companion object {
+        /**
+         * 创建默认的图片view
+         */
+        @JvmStatic
+        fun createItemView(context: Context): RippleImageView {
+            val itemView = RippleImageView(context)
+            itemView.scaleType = ImageView.ScaleType.CENTER_CROP
+            return itemView
+        }
+
+        /**
+         * 空闲时预先创建count个默认的图片view，count超过复用池的最大缓存数量时会提高上限
+         */
+        @JvmStatic
+        fun warmupItemViews(warmup: RippleViewWarmup, count: Int) {
+            warmup.getPool().ensureMaxSize(RippleImageView::class.java, count)
+            warmup.add(RippleImageView::class.java, count) { createItemView(it) }
+        }
+    }
+
+    /**
+     * 图片view的复用池，设置后默认的[onCreateView]会优先从复用池获取
+     */
+    @Transient
+    var itemViewPool: RippleViewPool? = null
+
     open fun onCreateView(position: Int, nineGrid: NineGrid): RippleImageView {
         //position一般用于最后一个ImageView的显示
-        val itemView = RippleImageView(mContext)
-        itemView.scaleType = ImageView.ScaleType.CENTER_CROP
-        return itemView
+        return itemViewPool?.acquire(RippleImageView::class.java, mContext)
+            ?: createItemView(mContext)
     }
 
     open fun setImageList(list: List<NineItem>) {
@@ -0,0 +1,115 @@
+package com.ripple.ui.ninegridview.impl
+
+import android.graphics.Bitmap
+import android.os.Build
+import android.util.LruCache
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/18 14:50
+ * Email: fanyafeng@live.cn
+ * Description: 九宫格图片的内存缓存
+ *
+ * 1.按照bitmap占用的字节数计算大小，超过最大值时淘汰最久未使用的
+ * 2.key为路径加目标宽高，同一张图不同尺寸的格子分别缓存
+ * 3.设置了[bitmapPool]时缓存持有bitmap的一个引用，淘汰时释放，没有其他引用时进入复用池
+ * 线程安全，解码线程和主线程都可以访问
+ */
+class NineGridBitmapCache @JvmOverloads constructor(
+    maxSize: Int = DEFAULT_MAX_SIZE,
+    private val bitmapPool: NineGridBitmapPool? = null
+) {
+
+    companion object {
+        /**
+         * 默认使用应用最大内存的八分之一
+         */
+        @JvmField
+        val DEFAULT_MAX_SIZE = (Runtime.getRuntime().maxMemory() / 8).toInt()
+
+        @JvmStatic
+        fun createKey(path: String, width: Int, height: Int) = "$path|$width|$height"
+
+        @JvmStatic
+        fun getBitmapSize(bitmap: Bitmap): Int {
+            return if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                bitmap.allocationByteCount
+            } else {
+                bitmap.byteCount
+            }
+        }
+    }
+
+    private var lruCache = createLruCache(maxSize)
+
+    /**
+     * 只获取不增加引用，设置了[bitmapPool]时需要显示的话使用[acquire]
+     */
+    @Synchronized
+    fun get(key: String): Bitmap? = lruCache.get(key)
+
+    /**
+     * 获取并增加引用，用完后需要通过[NineGridBitmapPool.release]释放
+     * 获取和引用在同一个锁中，不会在中间被淘汰进入复用池
+     */
+    @Synchronized
+    fun acquire(key: String): Bitmap? {
+        val bitmap = lruCache.get(key) ?: return null
+        bitmapPool?.retain(bitmap)
+        return bitmap
+    }
+
+    @Synchronized
+    fun put(key: String, bitmap: Bitmap) {
+        bitmapPool?.retain(bitmap)
+        lruCache.put(key, bitmap)
+    }
+
+    @Synchronized
+    fun getMaxSize() = lruCache.maxSize()
+
+    /**
+     * 已经使用的字节数
+     */
+    @Synchronized
+    fun getSize() = lruCache.size()
+
+    /**
+     * 修改最大字节数，保留最近使用的部分
+     */
+    @Synchronized
+    fun setMaxSize(maxSize: Int) {
+        if (maxSize <= 0)
+            throw Exception("内存缓存大小需要大于0")
+        val snapshot = lruCache.snapshot()
+        lruCache = createLruCache(maxSize)
+        //snapshot按照从最久到最近使用的顺序，依次放入后最近使用的会被保留
+        snapshot.forEach { (key, bitmap) ->
+            lruCache.put(key, bitmap)
+        }
+    }
+
+    /**
+     * 内存不足时调用
+     */
+    @Synchronized
+    fun clear() {
+        lruCache.evictAll()
+    }
+
+    private fun createLruCache(maxSize: Int): LruCache<String, Bitmap> {
+        return object : LruCache<String, Bitmap>(maxSize) {
+            override fun sizeOf(key: String, value: Bitmap) = getBitmapSize(value)
+
+            override fun entryRemoved(
+                evicted: Boolean,
+                key: String,
+                oldValue: Bitmap,
+                newValue: Bitmap?
+            ) {
+                bitmapPool?.release(oldValue)
+            }
+        }
+    }
+}
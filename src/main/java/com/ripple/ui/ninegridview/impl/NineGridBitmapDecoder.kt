@@ -0,0 +1,130 @@
+package com.ripple.ui.ninegridview.impl
+
+import android.content.ContentResolver
+import android.content.Context
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.net.Uri
+import java.io.FileInputStream
+import java.io.InputStream
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/18 14:30
+ * Email: fanyafeng@live.cn
+ * Description: 本地图片按目标尺寸采样解码
+ *
+ * 1.支持本地文件路径以及file://，content://，android.resource://的uri
+ * 2.先只解码宽高，再按照目标尺寸计算inSampleSize，避免把原图完整解码到内存
+ * 3.传入[NineGridBitmapPool]时通过inBitmap复用空闲的bitmap，解码出的bitmap为mutable
+ * 需要在子线程调用，网络图片不支持，返回null
+ */
+object NineGridBitmapDecoder {
+
+    /**
+     * 计算采样率，为2的幂，采样后的宽高都不小于目标宽高
+     * 目标宽高未知时不采样
+     */
+    @JvmStatic
+    fun calculateInSampleSize(
+        sourceWidth: Int,
+        sourceHeight: Int,
+        targetWidth: Int,
+        targetHeight: Int
+    ): Int {
+        if (sourceWidth <= 0 || sourceHeight <= 0 || targetWidth <= 0 || targetHeight <= 0) {
+            return 1
+        }
+        var inSampleSize = 1
+        while (sourceWidth / (inSampleSize * 2) >= targetWidth
+            && sourceHeight / (inSampleSize * 2) >= targetHeight
+        ) {
+            inSampleSize *= 2
+        }
+        return inSampleSize
+    }
+
+    /**
+     * 采样后的宽高，向上取整，按照这个大小从复用池获取bitmap一定足够
+     */
+    @JvmStatic
+    fun calculateSampledSize(size: Int, inSampleSize: Int): Int {
+        return (size + inSampleSize - 1) / inSampleSize
+    }
+
+    /**
+     * 按照目标宽高解码，宽高未知时按照屏幕宽度解码
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun decode(
+        context: Context,
+        path: String,
+        width: Int,
+        height: Int,
+        bitmapPool: NineGridBitmapPool? = null
+    ): Bitmap? {
+        val screenWidth = context.resources.displayMetrics.widthPixels
+        val targetWidth = if (width > 0) width else screenWidth
+        val targetHeight = if (height > 0) height else screenWidth
+        val options = BitmapFactory.Options()
+        options.inJustDecodeBounds = true
+        decodeStream(context, path, options)
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null
+        }
+        options.inSampleSize = calculateInSampleSize(
+            options.outWidth,
+            options.outHeight,
+            targetWidth,
+            targetHeight
+        )
+        options.inJustDecodeBounds = false
+        if (bitmapPool == null || !NineGridBitmapPool.isReuseSupported()) {
+            return decodeStream(context, path, options)
+        }
+        options.inMutable = true
+        val inBitmap = bitmapPool.get(
+            calculateSampledSize(options.outWidth, options.inSampleSize),
+            calculateSampledSize(options.outHeight, options.inSampleSize),
+            options.inPreferredConfig
+        ) ?: return decodeStream(context, path, options)
+        options.inBitmap = inBitmap
+        val bitmap = decodeStream(context, path, options)
+        if (bitmap != null) {
+            return bitmap
+        }
+        //复用失败时放回复用池，不复用再解码一次
+        bitmapPool.put(inBitmap)
+        options.inBitmap = null
+        return decodeStream(context, path, options)
+    }
+
+    private fun decodeStream(
+        context: Context,
+        path: String,
+        options: BitmapFactory.Options
+    ): Bitmap? {
+        return try {
+            openStream(context, path)?.use {
+                BitmapFactory.decodeStream(it, null, options)
+            }
+        } catch (e: Exception) {
+            null
+        } catch (e: OutOfMemoryError) {
+            null
+        }
+    }
+
+    private fun openStream(context: Context, path: String): InputStream? {
+        val uri = Uri.parse(path)
+        return when (uri.scheme) {
+            null -> FileInputStream(path)
+            ContentResolver.SCHEME_FILE,
+            ContentResolver.SCHEME_CONTENT,
+            ContentResolver.SCHEME_ANDROID_RESOURCE -> context.contentResolver.openInputStream(uri)
+            else -> null
+        }
+    }
+}
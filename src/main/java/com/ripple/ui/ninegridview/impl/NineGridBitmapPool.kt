@@ -0,0 +1,163 @@
+package com.ripple.ui.ninegridview.impl
+
+import android.graphics.Bitmap
+import android.os.Build
+import java.util.LinkedList
+import java.util.TreeMap
+import java.util.WeakHashMap
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/20 10:20
+ * Email: fanyafeng@live.cn
+ * Description: 九宫格图片的bitmap复用池
+ *
+ * 1.通过引用计数记录bitmap被内存缓存和格子持有的次数，计数为0时放入复用池
+ * 2.复用池按照bitmap占用的字节数分组，解码时通过inBitmap复用字节数足够的bitmap
+ * 3.多图时格子宽高一致，滑动时解码的bitmap大小基本相同，复用率很高
+ * 4.空闲的bitmap总大小超过maxSize时丢弃最早放入的
+ * 线程安全，inBitmap需要4.4及以上版本，低版本不复用
+ */
+class NineGridBitmapPool @JvmOverloads constructor(private val maxSize: Int = DEFAULT_MAX_SIZE) {
+
+    companion object {
+        /**
+         * 默认使用应用最大内存的十六分之一
+         */
+        @JvmField
+        val DEFAULT_MAX_SIZE = (Runtime.getRuntime().maxMemory() / 16).toInt()
+
+        /**
+         * 复用的bitmap最多为需要大小的几倍，避免小图占用大图的内存
+         */
+        private const val MAX_SIZE_MULTIPLE = 4
+
+        @JvmStatic
+        fun isReuseSupported() = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+
+        @JvmStatic
+        fun getBytesPerPixel(config: Bitmap.Config?): Int {
+            return when (config) {
+                Bitmap.Config.ALPHA_8 -> 1
+                Bitmap.Config.RGB_565, Bitmap.Config.ARGB_4444 -> 2
+                else -> 4
+            }
+        }
+    }
+
+    /**
+     * 正在使用的bitmap的引用计数
+     * 弱引用，没有释放就被丢弃的格子持有的bitmap可以正常回收，Bitmap没有重写equals，按实例比较
+     */
+    private val refCounts = WeakHashMap<Bitmap, Int>()
+
+    /**
+     * 空闲的bitmap，按照字节数分组
+     */
+    private val buckets = TreeMap<Int, LinkedList<Bitmap>>()
+
+    /**
+     * 空闲的bitmap放入的顺序，超出大小时从头部丢弃
+     */
+    private val freeOrder = LinkedList<Bitmap>()
+
+    private var currentSize = 0
+
+    init {
+        if (maxSize < 0)
+            throw Exception("复用池大小不可以小于0")
+    }
+
+    /**
+     * 增加引用
+     */
+    @Synchronized
+    fun retain(bitmap: Bitmap) {
+        refCounts[bitmap] = (refCounts[bitmap] ?: 0) + 1
+    }
+
+    /**
+     * 减少引用，计数为0时放入复用池
+     */
+    @Synchronized
+    fun release(bitmap: Bitmap) {
+        val refCount = refCounts[bitmap] ?: return
+        if (refCount > 1) {
+            refCounts[bitmap] = refCount - 1
+        } else {
+            refCounts.remove(bitmap)
+            put(bitmap)
+        }
+    }
+
+    /**
+     * 是否正在被使用
+     */
+    @Synchronized
+    fun isRetained(bitmap: Bitmap) = refCounts.containsKey(bitmap)
+
+    /**
+     * 获取一个可以用于解码width x height图片的空闲bitmap，没有时返回null
+     */
+    @Synchronized
+    fun get(width: Int, height: Int, config: Bitmap.Config?): Bitmap? {
+        if (!isReuseSupported() || width <= 0 || height <= 0) return null
+        val needSize = width * height * getBytesPerPixel(config)
+        val entry = buckets.ceilingEntry(needSize) ?: return null
+        if (entry.key > needSize * MAX_SIZE_MULTIPLE) return null
+        val bitmap = entry.value.removeFirst()
+        if (entry.value.isEmpty()) {
+            buckets.remove(entry.key)
+        }
+        freeOrder.remove(bitmap)
+        currentSize -= entry.key
+        return bitmap
+    }
+
+    /**
+     * 放入空闲的bitmap，不能复用或者超过大小时返回false
+     * 放入后不可以再显示或者使用
+     */
+    @Synchronized
+    fun put(bitmap: Bitmap): Boolean {
+        if (!isReuseSupported() || bitmap.isRecycled || !bitmap.isMutable) return false
+        if (refCounts.containsKey(bitmap))
+            throw Exception("正在使用的bitmap不可以放入复用池")
+        val size = NineGridBitmapCache.getBitmapSize(bitmap)
+        if (size > maxSize) return false
+        buckets.getOrPut(size) { LinkedList() }.add(bitmap)
+        freeOrder.add(bitmap)
+        currentSize += size
+        trimToSize(maxSize)
+        return true
+    }
+
+    @Synchronized
+    fun getSize() = currentSize
+
+    fun getMaxSize() = maxSize
+
+    /**
+     * 清空空闲的bitmap，内存不足时调用
+     */
+    @Synchronized
+    fun clear() {
+        trimToSize(0)
+    }
+
+    private fun trimToSize(size: Int) {
+        while (currentSize > size && freeOrder.isNotEmpty()) {
+            val bitmap = freeOrder.removeFirst()
+            val bitmapSize = NineGridBitmapCache.getBitmapSize(bitmap)
+            val bucket = buckets[bitmapSize]
+            if (bucket != null) {
+                bucket.remove(bitmap)
+                if (bucket.isEmpty()) {
+                    buckets.remove(bitmapSize)
+                }
+            }
+            currentSize -= bitmapSize
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.ripple.ui.ninegridview.impl
+
+import android.content.Context
+import android.graphics.Bitmap
+import android.graphics.drawable.BitmapDrawable
+import android.os.Handler
+import android.os.Looper
+import android.os.Process
+import com.ripple.ui.ninegridview.AbsNineGridSizeLoadFrame
+import com.ripple.ui.ninegridview.NineGridThumbnailStore
+import com.ripple.ui.widget.RippleImageView
+import java.lang.ref.WeakReference
+import java.util.concurrent.LinkedBlockingDeque
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/18 15:20
+ * Email: fanyafeng@live.cn
+ * Description: 默认的图片加载，不依赖外部图片框架
+ *
+ * 1.只支持本地图片，路径格式见[NineGridBitmapDecoder]
+ * 2.在固定数量的后台线程中按照格子尺寸采样解码，不会阻塞主线程，
+ * 排队中的请求后进先出，快速滑动时最新绑定的格子先解码，格子已经重新绑定的请求直接跳过
+ * 3.解码结果放入共享的[memoryCache]，再次显示同样尺寸的图片时直接从内存获取
+ * 4.设置了[thumbnailStore]时优先读取缩略图，解码原图后保存缩略图，
+ * [NineGridDiskThumbnailStore]没有设置复用池时使用[bitmapPool]
+ * 5.解码完成后回到主线程判断，格子已经绑定了其他图片的话直接丢弃结果
+ * 6.格子重新绑定，清除绑定或者放入[com.ripple.ui.widget.RippleViewPool]时释放bitmap，
+ * 没有被缓存和其他格子使用时进入[bitmapPool]，之后解码通过inBitmap复用，滑动时基本不需要重新分配bitmap，
+ * 从窗口移除不会释放，没有释放就被丢弃的格子持有的bitmap由GC回收
+ * 7.内存不足时调用[trimMemory]
+ * 缓存和线程池所有实例共享，placeholder为加载中显示的图片，0为不显示
+ */
+class NineGridDefaultLoadFrame @JvmOverloads constructor(
+    private val placeholder: Int = 0,
+    private val thumbnailStore: NineGridThumbnailStore? = null
+) : AbsNineGridSizeLoadFrame() {
+
+    companion object {
+        /**
+         * 解码线程数
+         */
+        private val DECODE_THREAD_COUNT =
+            Runtime.getRuntime().availableProcessors().coerceIn(1, 2)
+
+        private const val KEEP_ALIVE_SECONDS = 30L
+
+        /**
+         * 共享的bitmap复用池
+         */
+        @JvmStatic
+        val bitmapPool by lazy { NineGridBitmapPool() }
+
+        /**
+         * 共享的内存缓存，可以通过[NineGridBitmapCache.setMaxSize]修改大小
+         */
+        @JvmStatic
+        val memoryCache by lazy { NineGridBitmapCache(bitmapPool = bitmapPool) }
+
+        private val mainHandler by lazy { Handler(Looper.getMainLooper()) }
+
+        /**
+         * 后进先出的任务队列，线程池通过offer添加任务
+         */
+        private class LifoBlockingDeque : LinkedBlockingDeque<Runnable>() {
+            override fun offer(element: Runnable): Boolean {
+                return offerFirst(element)
+            }
+        }
+
+        /**
+         * 清空内存缓存和复用池，在onTrimMemory或者onLowMemory中调用
+         * 正在显示的bitmap不受影响
+         */
+        @JvmStatic
+        fun trimMemory() {
+            memoryCache.clear()
+            bitmapPool.clear()
+        }
+
+        private val decodeExecutor by lazy {
+            val threadCount = AtomicInteger()
+            val threadFactory = ThreadFactory { runnable ->
+                Thread({
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND)
+                    runnable.run()
+                }, "ripple-nine-grid-decode-" + threadCount.incrementAndGet())
+            }
+            ThreadPoolExecutor(
+                DECODE_THREAD_COUNT,
+                DECODE_THREAD_COUNT,
+                KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                LifoBlockingDeque(),
+                threadFactory
+            ).apply {
+                allowCoreThreadTimeOut(true)
+            }
+        }
+    }
+
+    override fun displayImage(
+        context: Context,
+        path: String,
+        imageView: RippleImageView,
+        width: Int,
+        height: Int
+    ) {
+        val key = NineGridBitmapCache.createKey(path, width, height)
+        val cached = memoryCache.acquire(key)
+        if (cached != null) {
+            showBitmap(imageView, cached)
+            return
+        }
+        if (placeholder != 0) {
+            imageView.setImageResource(placeholder)
+        } else {
+            imageView.setImageDrawable(null)
+        }
+        val appContext = context.applicationContext
+        val store = thumbnailStore
+        if (store is NineGridDiskThumbnailStore && store.bitmapPool == null) {
+            //读取缩略图时和解码原图共用复用池
+            store.bitmapPool = bitmapPool
+        }
+        val viewReference = WeakReference(imageView)
+        val generation = imageView.getBindGeneration()
+        //解码线程中只读取绑定的版本号，不访问view的其他状态，是否显示在主线程中判断
+        decodeExecutor.execute {
+            //排队期间格子已经重新绑定或者被回收，不再解码
+            if (viewReference.get()?.getBindGeneration() != generation) return@execute
+            //获取时已经增加了引用，显示时交给格子，没有显示时释放
+            val bitmap = memoryCache.acquire(key)
+                ?: loadBitmap(appContext, path, width, height)
+                    ?.also {
+                        bitmapPool.retain(it)
+                        memoryCache.put(key, it)
+                    }
+                ?: return@execute
+            mainHandler.post {
+                setBitmapIfBound(viewReference.get(), path, width, height, bitmap)
+            }
+        }
+    }
+
+    /**
+     * 在解码线程中调用，缩略图优先，没有时解码原图并保存缩略图
+     */
+    private fun loadBitmap(context: Context, path: String, width: Int, height: Int): Bitmap? {
+        thumbnailStore?.get(context, path, width, height)?.let {
+            return it
+        }
+        val bitmap =
+            NineGridBitmapDecoder.decode(context, path, width, height, bitmapPool) ?: return null
+        thumbnailStore?.put(context, path, width, height, bitmap)
+        return bitmap
+    }
+
+    private fun setBitmapIfBound(
+        imageView: RippleImageView?,
+        path: String,
+        width: Int,
+        height: Int,
+        bitmap: Bitmap
+    ) {
+        if (imageView != null && imageView.isBoundTo(path, width, height)) {
+            showBitmap(imageView, bitmap)
+        } else {
+            bitmapPool.release(bitmap)
+        }
+    }
+
+    /**
+     * 显示已经增加过引用的bitmap，格子不再显示时释放
+     */
+    private fun showBitmap(imageView: RippleImageView, bitmap: Bitmap) {
+        imageView.setImageBitmap(bitmap)
+        imageView.setBoundImageRelease {
+            //进入复用池后内容会被覆盖，不能继续显示
+            if ((imageView.drawable as? BitmapDrawable)?.bitmap === bitmap) {
+                imageView.setImageDrawable(null)
+            }
+            bitmapPool.release(bitmap)
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.ripple.ui.ninegridview.impl
+
+import android.content.ContentResolver
+import android.content.Context
+import android.graphics.Bitmap
+import android.net.Uri
+import android.os.Build
+import android.provider.DocumentsContract
+import android.provider.MediaStore
+import com.ripple.ui.ninegridview.NineGridThumbnailStore
+import java.io.File
+import java.io.FileOutputStream
+import java.io.OutputStream
+import java.security.MessageDigest
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/19 10:30
+ * Email: fanyafeng@live.cn
+ * Description: 保存在磁盘上的九宫格缩略图
+ *
+ * 1.保存在应用缓存目录的ripple_nine_grid_thumb下，系统空间不足时可以被清理
+ * 2.文件名为原图路径，原图修改时间以及目标宽高的md5，原图修改后自动失效
+ * 3.总大小超过maxSize时按照最后使用时间删除最久未使用的文件
+ * 没有透明通道的图片保存为jpeg，有透明通道的保存为png
+ * 大小记录在实例中，多个九宫格需要共享同一个实例
+ * 设置[bitmapPool]后读取缩略图时通过inBitmap复用，传给[NineGridDefaultLoadFrame]时没有设置的话会自动使用
+ * [NineGridDefaultLoadFrame.bitmapPool]
+ * 第一次使用时删除上次进程被杀时残留的临时文件
+ */
+class NineGridDiskThumbnailStore @JvmOverloads constructor(
+    private val maxSize: Long = DEFAULT_MAX_SIZE,
+    private val quality: Int = DEFAULT_QUALITY
+) : NineGridThumbnailStore {
+
+    companion object {
+        const val DIRECTORY_NAME = "ripple_nine_grid_thumb"
+
+        const val DEFAULT_MAX_SIZE = 50L * 1024 * 1024
+
+        const val DEFAULT_QUALITY = 85
+
+        private const val TEMP_SUFFIX = ".tmp"
+
+        /**
+         * 缩略图文件名
+         */
+        @JvmStatic
+        fun createKey(path: String, lastModified: Long, width: Int, height: Int): String {
+            val digest = MessageDigest.getInstance("MD5")
+                .digest("$path|$lastModified|$width|$height".toByteArray())
+            val builder = StringBuilder(digest.size * 2)
+            digest.forEach {
+                val value = it.toInt() and 0xff
+                if (value < 0x10) builder.append('0')
+                builder.append(Integer.toHexString(value))
+            }
+            return builder.toString()
+        }
+    }
+
+    /**
+     * 当前总大小，第一次使用时遍历目录计算
+     */
+    @Transient
+    private var currentSize = 0L
+
+    @Transient
+    private var sizeInitialized = false
+
+    /**
+     * 读取缩略图时使用的复用池，会在解码线程中读取，不参与序列化
+     */
+    @Volatile
+    @Transient
+    var bitmapPool: NineGridBitmapPool? = null
+
+    init {
+        if (maxSize <= 0)
+            throw Exception("缩略图缓存大小需要大于0")
+        if (quality !in 0..100)
+            throw Exception("缩略图压缩质量需要在0到100之间")
+    }
+
+    override fun get(context: Context, path: String, width: Int, height: Int): Bitmap? {
+        val file = getThumbnailFile(context, path, width, height) ?: return null
+        if (!file.exists()) return null
+        //缩略图已经按照目标宽高采样过，这里不会再采样
+        val bitmap = NineGridBitmapDecoder.decode(
+            context,
+            file.absolutePath,
+            width,
+            height,
+            bitmapPool
+        )
+        if (bitmap == null) {
+            //文件损坏
+            deleteFile(file)
+            return null
+        }
+        //更新最后使用时间
+        file.setLastModified(System.currentTimeMillis())
+        return bitmap
+    }
+
+    override fun put(context: Context, path: String, width: Int, height: Int, bitmap: Bitmap) {
+        val file = getThumbnailFile(context, path, width, height) ?: return
+        val format = if (bitmap.hasAlpha()) Bitmap.CompressFormat.PNG else Bitmap.CompressFormat.JPEG
+        putFile(file) {
+            bitmap.compress(format, quality, it)
+        }
+    }
+
+    /**
+     * 写入缩略图文件并更新总大小，writer返回false时放弃写入
+     * 和Context无关，方便单测
+     */
+    internal fun putFile(file: File, writer: (OutputStream) -> Boolean): Boolean {
+        val directory = file.parentFile ?: return false
+        if (!directory.exists() && !directory.mkdirs()) return false
+        //需要在创建临时文件之前，初始化时会删除残留的临时文件
+        synchronized(this) {
+            initSizeIfNeeded(directory)
+        }
+        //先写入临时文件，完成后再重命名，避免读取到写了一半的文件
+        val tempFile = try {
+            File.createTempFile(file.name, TEMP_SUFFIX, directory)
+        } catch (e: Exception) {
+            return false
+        }
+        val success = try {
+            FileOutputStream(tempFile).use(writer)
+        } catch (e: Exception) {
+            false
+        }
+        if (!success) {
+            tempFile.delete()
+            return false
+        }
+        synchronized(this) {
+            val oldLength = file.length()
+            if (tempFile.renameTo(file)) {
+                currentSize += file.length() - oldLength
+                trimToSize(directory)
+                return true
+            }
+            tempFile.delete()
+            return false
+        }
+    }
+
+    /**
+     * 删除所有缩略图
+     */
+    @Synchronized
+    fun clear(context: Context) {
+        getDirectory(context).listFiles()?.forEach { it.delete() }
+        currentSize = 0L
+        sizeInitialized = true
+    }
+
+    fun getSize(context: Context) = getSize(getDirectory(context))
+
+    @Synchronized
+    internal fun getSize(directory: File): Long {
+        initSizeIfNeeded(directory)
+        return currentSize
+    }
+
+    fun getMaxSize() = maxSize
+
+    private fun getDirectory(context: Context) = File(context.cacheDir, DIRECTORY_NAME)
+
+    private fun getThumbnailFile(context: Context, path: String, width: Int, height: Int): File? {
+        val lastModified = getLastModified(context, path)
+        if (lastModified <= 0L) return null
+        return File(getDirectory(context), createKey(path, lastModified, width, height))
+    }
+
+    /**
+     * 原图的修改时间，获取不到时不使用缓存
+     */
+    private fun getLastModified(context: Context, path: String): Long {
+        val uri = Uri.parse(path)
+        return when (uri.scheme) {
+            null -> File(path).lastModified()
+            ContentResolver.SCHEME_FILE -> uri.path?.let { File(it).lastModified() } ?: 0L
+            ContentResolver.SCHEME_CONTENT -> queryLastModified(context, uri)
+            else -> 0L
+        }
+    }
+
+    private fun queryLastModified(context: Context, uri: Uri): Long {
+        val isDocument = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                && DocumentsContract.isDocumentUri(context, uri)
+        //只查询需要的一列
+        val column = if (isDocument) {
+            DocumentsContract.Document.COLUMN_LAST_MODIFIED
+        } else {
+            MediaStore.MediaColumns.DATE_MODIFIED
+        }
+        return try {
+            context.contentResolver.query(uri, arrayOf(column), null, null, null)?.use { cursor ->
+                if (!cursor.moveToFirst()) return@use 0L
+                val index = cursor.getColumnIndex(column)
+                when {
+                    index < 0 || cursor.isNull(index) -> 0L
+                    isDocument -> cursor.getLong(index)
+                    //MediaStore的修改时间单位为秒
+                    else -> cursor.getLong(index) * 1000
+                }
+            } ?: 0L
+        } catch (e: Exception) {
+            0L
+        }
+    }
+
+    /**
+     * 计算当前总大小，同时删除残留的临时文件
+     * 需要在持有锁并且没有正在写入的临时文件时调用
+     */
+    private fun initSizeIfNeeded(directory: File) {
+        if (sizeInitialized) return
+        sizeInitialized = true
+        var size = 0L
+        directory.listFiles()?.forEach {
+            if (it.name.endsWith(TEMP_SUFFIX)) {
+                it.delete()
+            } else {
+                size += it.length()
+            }
+        }
+        currentSize = size
+    }
+
+    private fun trimToSize(directory: File) {
+        if (currentSize <= maxSize) return
+        val files = directory.listFiles() ?: return
+        files.sortBy { it.lastModified() }
+        for (file in files) {
+            if (currentSize <= maxSize) break
+            if (file.name.endsWith(TEMP_SUFFIX)) continue
+            val length = file.length()
+            if (file.delete()) {
+                currentSize -= length
+            }
+        }
+    }
+
+    /**
+     * 删除损坏的缩略图，同时更新总大小
+     */
+    @Synchronized
+    internal fun deleteFile(file: File) {
+        val length = file.length()
+        if (file.delete() && sizeInitialized) {
+            currentSize -= length
+        }
+    }
+}
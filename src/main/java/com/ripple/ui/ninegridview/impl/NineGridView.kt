@@ -111,7 +111,17 @@ class NineGridView @JvmOverloads constructor(
 
     var nineItemListener: NineItemListener? = null
 
+    /**
+     * 更换图片加载框架后需要重新加载所有图片
+     */
     var loadFrame: NineGridLoadFrame? = null
+        set(value) {
+            if (field !== value) {
+                field = value
+                viewList.forEach { it.clearBoundPath() }
+                requestLayout()
+            }
+        }
 
     /**
      * 回调监听
@@ -327,7 +337,24 @@ class NineGridView @JvmOverloads constructor(
 
                 (itemView as RippleImageView).layout(mLeft, mTop, mRight, mBottom)
 
-                loadFrame?.displayImage(context, item.getPath(), itemView)
+                /**
+                 * 布局可能因为其他原因多次触发
+                 * 只有图片路径变化时才去加载
+                 */
+                val path = item.getPath()
+                val frame = loadFrame
+                if (frame is NineGridSizeLoadFrame) {
+                    //按尺寸加载时传入测量好的格子宽高，单张图片时为单图宽高
+                    val targetWidth = itemWidth ?: 0
+                    val targetHeight = itemHeight ?: 0
+                    if (!itemView.isBoundTo(path, targetWidth, targetHeight)) {
+                        itemView.bindPath(path, targetWidth, targetHeight)
+                        frame.displayImage(context, path, itemView, targetWidth, targetHeight)
+                    }
+                } else if (frame != null && !itemView.isBoundTo(path)) {
+                    itemView.bindPath(path)
+                    frame.displayImage(context, path, itemView)
+                }
             }
         }
     }
@@ -13,6 +13,7 @@ import android.util.AttributeSet
 import android.view.MotionEvent
 import android.view.View
 import com.ripple.tool.density.dp2pxF
+import java.util.concurrent.atomic.AtomicInteger
 
 /**
  * Author: fanyafeng
@@ -56,6 +57,86 @@ open class RippleImageView @JvmOverloads constructor(
 
     var roundRadio = 0F
 
+    /**
+     * 当前绑定的图片路径，路径没有变化时不需要重新加载
+     */
+    var boundPath: String? = null
+        private set
+
+    /**
+     * 绑定时的目标宽高，按尺寸加载的图片尺寸变化后需要重新加载
+     */
+    var boundWidth = 0
+        private set
+    var boundHeight = 0
+        private set
+
+    /**
+     * 绑定的版本号，每次重新绑定和清除绑定时加一
+     * 可以在后台线程中读取，用来判断排队中的加载请求是否已经过期
+     */
+    private val bindGeneration = AtomicInteger()
+
+    fun getBindGeneration() = bindGeneration.get()
+
+    /**
+     * 是否已经绑定了这个路径
+     */
+    fun isBoundTo(path: String?): Boolean {
+        return path != null && path == boundPath
+    }
+
+    /**
+     * 是否已经按照这个尺寸绑定了这个路径
+     */
+    fun isBoundTo(path: String?, width: Int, height: Int): Boolean {
+        return isBoundTo(path) && width == boundWidth && height == boundHeight
+    }
+
+    /**
+     * 记录绑定的图片路径，之前显示的图片会被释放
+     */
+    @JvmOverloads
+    fun bindPath(path: String?, width: Int = 0, height: Int = 0) {
+        releaseBoundImage()
+        boundPath = path
+        boundWidth = width
+        boundHeight = height
+        bindGeneration.incrementAndGet()
+    }
+
+    /**
+     * 清除绑定，下次会重新加载，之前显示的图片会被释放
+     */
+    fun clearBoundPath() {
+        releaseBoundImage()
+        boundPath = null
+        boundWidth = 0
+        boundHeight = 0
+        bindGeneration.incrementAndGet()
+    }
+
+    /**
+     * 显示的图片不再使用时的回调，用于图片复用
+     * 只在重新绑定和清除绑定时调用，只会调用一次，从窗口移除不会释放，
+     * 重新添加到窗口时不需要重新加载
+     */
+    private var boundImageRelease: (() -> Unit)? = null
+
+    /**
+     * 设置当前显示图片的释放回调，之前的回调会先被调用
+     */
+    fun setBoundImageRelease(release: (() -> Unit)?) {
+        releaseBoundImage()
+        boundImageRelease = release
+    }
+
+    private fun releaseBoundImage() {
+        val release = boundImageRelease ?: return
+        boundImageRelease = null
+        release.invoke()
+    }
+
     var hintText: String? = null
         set(value) {
             field = value
@@ -0,0 +1,112 @@
+package com.ripple.ui.widget
+
+import android.content.Context
+import android.view.View
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/16 15:30
+ * Email: fanyafeng@live.cn
+ * Description: view的复用池
+ *
+ * 1.按照view的类型分别缓存，每种类型有最大缓存数量
+ * 2.可以在多个控件之间共享，比如列表中每个卡片里的ChooseFlowView
+ * 3.view持有Context，一般一个Activity使用一个，获取时只会返回同一个Context创建的view
+ * 放入的view必须已经从父布局中移除
+ */
+class RippleViewPool {
+
+    companion object {
+        const val DEFAULT_MAX_SIZE = 20
+    }
+
+    private class ScrapData {
+        val scrapViews = arrayListOf<View>()
+        var maxSize = DEFAULT_MAX_SIZE
+    }
+
+    private val scrapMap = HashMap<Class<out View>, ScrapData>()
+
+    /**
+     * 设置某种类型的最大缓存数量，超出的部分会被丢弃
+     */
+    fun setMaxSize(viewClass: Class<out View>, maxSize: Int) {
+        if (maxSize < 0)
+            throw Exception("最大缓存数量不可以小于0")
+        val scrapData = getScrapData(viewClass)
+        scrapData.maxSize = maxSize
+        val scrapViews = scrapData.scrapViews
+        while (scrapViews.size > maxSize) {
+            scrapViews.removeAt(scrapViews.size - 1)
+        }
+    }
+
+    fun getMaxSize(viewClass: Class<out View>) = getScrapData(viewClass).maxSize
+
+    /**
+     * 保证某种类型的最大缓存数量不小于minMaxSize，比如预创建的数量超过了默认的最大缓存数量
+     */
+    fun ensureMaxSize(viewClass: Class<out View>, minMaxSize: Int) {
+        val scrapData = getScrapData(viewClass)
+        if (scrapData.maxSize < minMaxSize) {
+            scrapData.maxSize = minMaxSize
+        }
+    }
+
+    /**
+     * 缓存的数量
+     */
+    fun getCount(viewClass: Class<out View>) = scrapMap[viewClass]?.scrapViews?.size ?: 0
+
+    /**
+     * 获取一个缓存的view，没有时返回null
+     */
+    fun <T : View> acquire(viewClass: Class<T>, context: Context): T? {
+        val scrapViews = scrapMap[viewClass]?.scrapViews ?: return null
+        for (index in scrapViews.size - 1 downTo 0) {
+            if (scrapViews[index].context === context) {
+                return viewClass.cast(scrapViews.removeAt(index))
+            }
+        }
+        return null
+    }
+
+    /**
+     * 放入view，超过最大缓存数量时返回false
+     */
+    fun release(view: View): Boolean {
+        if (view.parent != null)
+            throw Exception("放入复用池的view需要先从父布局中移除")
+        //不再显示，释放绑定的图片
+        if (view is RippleImageView) {
+            view.clearBoundPath()
+        }
+        val scrapData = getScrapData(view.javaClass)
+        if (scrapData.scrapViews.size >= scrapData.maxSize) return false
+        scrapData.scrapViews.add(view)
+        return true
+    }
+
+    /**
+     * 清空某个Context创建的view，Activity销毁时调用
+     */
+    fun clear(context: Context) {
+        scrapMap.values.forEach { scrapData ->
+            val scrapViews = scrapData.scrapViews
+            for (index in scrapViews.size - 1 downTo 0) {
+                if (scrapViews[index].context === context) {
+                    scrapViews.removeAt(index)
+                }
+            }
+        }
+    }
+
+    fun clear() {
+        scrapMap.clear()
+    }
+
+    private fun getScrapData(viewClass: Class<out View>): ScrapData {
+        return scrapMap.getOrPut(viewClass) { ScrapData() }
+    }
+}
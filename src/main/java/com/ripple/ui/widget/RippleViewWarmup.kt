@@ -0,0 +1,126 @@
+package com.ripple.ui.widget
+
+import android.content.Context
+import android.os.Looper
+import android.os.MessageQueue
+import android.os.SystemClock
+import android.util.Log
+import android.view.View
+import java.util.LinkedList
+
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/17 10:40
+ * Email: fanyafeng@live.cn
+ * Description: 在主线程空闲时预先创建view并放入[RippleViewPool]
+ *
+ * 1.通过IdleHandler在主线程空闲时创建，不和正常的绘制抢时间
+ * 2.每次空闲只创建一个时间预算内的数量，剩下的等下一次空闲
+ * 3.复用池中的数量达到目标数量或者最大缓存数量后停止，目标数量超过最大缓存数量时会打印警告日志，
+ * 需要全部缓存时先通过[RippleViewPool.ensureMaxSize]提高上限
+ * 需要在主线程调用，creator需要使用构造时传入的Context创建view
+ */
+class RippleViewWarmup(
+    private val mContext: Context,
+    private val pool: RippleViewPool
+) : MessageQueue.IdleHandler {
+
+    companion object {
+        /**
+         * 每次空闲时创建view的默认时间预算
+         */
+        const val DEFAULT_IDLE_BUDGET_MS = 4L
+
+        private val TAG = RippleViewWarmup::class.java.simpleName
+    }
+
+    private class WarmupTask(
+        viewClass: Class<out View>,
+        val count: Int,
+        val creator: (Context) -> View
+    ) {
+        /**
+         * 复用池按照实际的类型缓存，creator创建子类时以第一次创建的类型为准
+         */
+        var createdClass: Class<out View> = viewClass
+    }
+
+    private val tasks = LinkedList<WarmupTask>()
+
+    private var started = false
+
+    private var cancelled = false
+
+    /**
+     * 每次空闲时创建view的时间预算
+     */
+    var idleBudgetMs = DEFAULT_IDLE_BUDGET_MS
+
+    /**
+     * 预先创建count个viewClass类型的view
+     */
+    fun <T : View> add(viewClass: Class<T>, count: Int, creator: (Context) -> T): RippleViewWarmup {
+        tasks.add(WarmupTask(viewClass, count, creator))
+        return this
+    }
+
+    fun start() {
+        if (started || cancelled) return
+        started = true
+        Looper.myQueue().addIdleHandler(this)
+    }
+
+    /**
+     * 取消剩余的创建，已经创建的保留在复用池中
+     */
+    fun cancel() {
+        if (cancelled) return
+        cancelled = true
+        tasks.clear()
+        if (started) {
+            Looper.myQueue().removeIdleHandler(this)
+        }
+    }
+
+    fun isFinished() = started && tasks.isEmpty()
+
+    /**
+     * 预创建的view放入的复用池
+     */
+    fun getPool() = pool
+
+    override fun queueIdle(): Boolean {
+        if (cancelled) return false
+        val startTime = SystemClock.uptimeMillis()
+        while (tasks.isNotEmpty()) {
+            val task = tasks.first
+            val maxSize = pool.getMaxSize(task.createdClass)
+            if (pool.getCount(task.createdClass) >= task.count.coerceAtMost(maxSize)) {
+                tasks.removeFirst()
+                warnIfClamped(task, maxSize)
+                continue
+            }
+            val view = task.creator(mContext)
+            task.createdClass = view.javaClass
+            if (!pool.release(view)) {
+                //已经达到最大缓存数量
+                tasks.removeFirst()
+                warnIfClamped(task, pool.getMaxSize(task.createdClass))
+            }
+            if (SystemClock.uptimeMillis() - startTime >= idleBudgetMs) {
+                return tasks.isNotEmpty()
+            }
+        }
+        return false
+    }
+
+    private fun warnIfClamped(task: WarmupTask, maxSize: Int) {
+        if (task.count > maxSize) {
+            Log.w(
+                TAG,
+                task.createdClass.simpleName + "预创建" + task.count + "个，超过了复用池的最大缓存数量，只缓存了" + maxSize + "个"
+            )
+        }
+    }
+}
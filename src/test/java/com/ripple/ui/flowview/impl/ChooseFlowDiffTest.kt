@@ -0,0 +1,60 @@
+package com.ripple.ui.flowview.impl
+
+import org.junit.Assert.*
+import org.junit.Test
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/10 16:10
+ * Email: fanyafeng@live.cn
+ * Description: 标签列表差异计算单测
+ */
+class ChooseFlowDiffTest {
+
+    @Test
+    fun insertAtFront() {
+        val diff = ChooseFlowDiff()
+        diff.calculate(listOf("a", "b", "c"), listOf("x", "a", "b", "c"))
+
+        assertEquals(1, diff.getInsertedCount())
+        assertEquals(0, diff.getRemovedCount())
+        assertEquals(0, diff.getMovedCount())
+        assertEquals(ChooseFlowDiff.NO_POSITION, diff.convertNewPositionToOld(0))
+        assertEquals(1, diff.convertOldPositionToNew(0))
+        assertEquals(3, diff.convertOldPositionToNew(2))
+        assertTrue(diff.isStable(1))
+        assertTrue(diff.isStable(3))
+    }
+
+    @Test
+    fun removeAndMove() {
+        val diff = ChooseFlowDiff()
+        diff.calculate(listOf("a", "b", "c", "d"), listOf("b", "c", "d", "a"))
+
+        assertEquals(0, diff.getRemovedCount())
+        assertEquals(1, diff.getMovedCount())
+        assertFalse(diff.isStable(3))
+        assertTrue(diff.isStable(0))
+
+        diff.calculate(listOf("a", "b", "c"), listOf("c", "a"))
+        assertEquals(1, diff.getRemovedCount())
+        assertEquals(ChooseFlowDiff.NO_POSITION, diff.convertOldPositionToNew(1))
+        assertEquals(1, diff.getMovedCount())
+    }
+
+    @Test
+    fun duplicateKeys() {
+        val diff = ChooseFlowDiff()
+        diff.calculate(listOf("a", "a"), listOf("a", "a", "a"))
+
+        assertEquals(0, diff.convertNewPositionToOld(0))
+        assertEquals(ChooseFlowDiff.NO_POSITION, diff.convertNewPositionToOld(1))
+        assertEquals(ChooseFlowDiff.NO_POSITION, diff.convertNewPositionToOld(2))
+        assertEquals(1, diff.getRemovedCount())
+        assertEquals(2, diff.getInsertedCount())
+        assertEquals(3, diff.getDuplicateKeyCount())
+
+        diff.calculate(listOf("a", "b"), listOf("b", "a"))
+        assertEquals(0, diff.getDuplicateKeyCount())
+    }
+}
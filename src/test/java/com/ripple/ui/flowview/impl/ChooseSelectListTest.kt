@@ -0,0 +1,64 @@
+package com.ripple.ui.flowview.impl
+
+import org.junit.Assert.*
+import org.junit.Test
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/10 11:30
+ * Email: fanyafeng@live.cn
+ * Description: 选中列表单测
+ */
+class ChooseSelectListTest {
+
+    @Test
+    fun fifoOrder() {
+        val selectList = ChooseSelectList()
+        selectList.addLast(5)
+        selectList.addLast(2)
+        selectList.addLast(9)
+
+        assertEquals(3, selectList.size)
+        assertEquals(5, selectList.first())
+        assertEquals(5, selectList.removeFirst())
+        assertFalse(selectList.contains(5))
+        assertTrue(selectList.contains(2))
+        assertArrayEquals(intArrayOf(2, 9), selectList.toIntArray())
+    }
+
+    @Test
+    fun removeFromMiddle() {
+        val selectList = ChooseSelectList()
+        (0 until 5).forEach { selectList.addLast(it * 10) }
+
+        assertTrue(selectList.remove(20))
+        assertFalse(selectList.remove(20))
+        assertArrayEquals(intArrayOf(0, 10, 30, 40), selectList.toIntArray())
+    }
+
+    @Test
+    fun growAfterWrap() {
+        val selectList = ChooseSelectList()
+        (0 until 6).forEach { selectList.addLast(it) }
+        (0 until 4).forEach { selectList.removeFirst() }
+        (6 until 20).forEach { selectList.addLast(it) }
+
+        assertEquals(16, selectList.size)
+        assertEquals(4, selectList.first())
+        assertEquals(19, selectList[15])
+    }
+
+    @Test
+    fun duplicateAndVersion() {
+        val selectList = ChooseSelectList()
+        assertTrue(selectList.addLast(3))
+        val version = selectList.version
+        assertFalse(selectList.addLast(3))
+        assertEquals(version, selectList.version)
+
+        selectList.addLast(1)
+        assertEquals(1, selectList.nextSelected(0))
+        assertEquals(3, selectList.nextSelected(2))
+        assertEquals(-1, selectList.nextSelected(4))
+    }
+}
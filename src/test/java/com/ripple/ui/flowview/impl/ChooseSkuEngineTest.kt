@@ -0,0 +1,69 @@
+package com.ripple.ui.flowview.impl
+
+import com.ripple.ui.flowview.IChooseSkuModel
+import org.junit.Assert.*
+import org.junit.Test
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/11 14:00
+ * Email: fanyafeng@live.cn
+ * Description: 多规格可选状态计算单测
+ */
+class ChooseSkuEngineTest {
+
+    private class Sku(private val keys: List<String>, private val inStock: Boolean = true) :
+        IChooseSkuModel {
+        override fun getSkuSpecKeys() = keys
+
+        override fun isSkuInStock() = inStock
+    }
+
+    private val groupKeys = listOf(listOf("red", "blue"), listOf("S", "M", "L"))
+
+    private val skuList = listOf(
+        Sku(listOf("red", "S")),
+        Sku(listOf("red", "M"), false),
+        Sku(listOf("blue", "M")),
+        Sku(listOf("blue", "L"))
+    )
+
+    @Test
+    fun nothingSelected() {
+        val engine = ChooseSkuEngine()
+        engine.setData(groupKeys, skuList)
+        engine.compute(intArrayOf(ChooseSkuEngine.NO_SELECTED, ChooseSkuEngine.NO_SELECTED))
+
+        assertArrayEquals(booleanArrayOf(true, true), engine.getCheckable(0))
+        assertArrayEquals(booleanArrayOf(true, true, true), engine.getCheckable(1))
+    }
+
+    @Test
+    fun selectedLimitsOtherGroups() {
+        val engine = ChooseSkuEngine()
+        engine.setData(groupKeys, skuList)
+        engine.compute(intArrayOf(0, ChooseSkuEngine.NO_SELECTED))
+
+        assertArrayEquals(booleanArrayOf(true, false, false), engine.getCheckable(1))
+        //自己所在的规格组不受自己选中的影响
+        assertArrayEquals(booleanArrayOf(true, true), engine.getCheckable(0))
+
+        engine.compute(intArrayOf(ChooseSkuEngine.NO_SELECTED, 1))
+        assertArrayEquals(booleanArrayOf(false, true), engine.getCheckable(0))
+        assertEquals(2, engine.findSku(intArrayOf(1, 1)))
+        assertEquals(-1, engine.findSku(intArrayOf(0, 1)))
+    }
+
+    @Test
+    fun manySkus() {
+        val sizes = (0 until 100).map { "size$it" }
+        val engine = ChooseSkuEngine()
+        engine.setData(listOf(listOf("red", "blue"), sizes),
+            sizes.map { Sku(listOf(if (it == "size99") "blue" else "red", it)) })
+        engine.compute(intArrayOf(1, ChooseSkuEngine.NO_SELECTED))
+
+        assertTrue(engine.isCheckable(1, 99))
+        assertFalse(engine.isCheckable(1, 70))
+        assertEquals(99, engine.findSku(intArrayOf(1, 99)))
+    }
+}
@@ -0,0 +1,64 @@
+package com.ripple.ui.flowview.impl
+
+import org.junit.Assert.*
+import org.junit.Test
+import java.util.BitSet
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/14 11:00
+ * Email: fanyafeng@live.cn
+ * Description: 标签标题索引单测
+ */
+class ChooseTitleIndexTest {
+
+    private val index = ChooseTitleIndex().apply {
+        build(listOf("Nike", "Adidas", "New Balance", "李宁", "安踏", "Anta"))
+    }
+
+    @Test
+    fun emptyQueryMatchesAll() {
+        val result = BitSet()
+        assertEquals(6, index.query("", result))
+        assertEquals(6, result.cardinality())
+    }
+
+    @Test
+    fun substringIgnoreCase() {
+        val result = BitSet()
+        assertEquals(3, index.query("N", result))
+        assertEquals(3, index.query("a", result))
+
+        assertEquals(1, index.query("BAL", result))
+        assertTrue(result.get(2))
+
+        assertEquals(1, index.query("李宁", result))
+        assertTrue(result.get(3))
+    }
+
+    @Test
+    fun bigramsOutOfOrder() {
+        val result = BitSet()
+        //"an"和"nt"都在"anta"中，"ant"也在，但是"ntan"不在
+        assertEquals(1, index.query("ant", result))
+        assertEquals(0, index.query("ntan", result))
+        assertEquals(0, index.query("xyz", result))
+    }
+
+    @Test
+    fun matchesAgreesWithQuery() {
+        val titles = listOf("Nike", "Adidas", "New Balance", "李宁", "安踏", "Anta", "İstanbul", "ΣΊΣΥΦΟΣ")
+        val titleIndex = ChooseTitleIndex().apply { build(titles) }
+        val result = BitSet()
+        for (query in listOf("n", "AN", "ant", "bal", "宁", "i̇s", "ist", "σί", "φος", "xyz")) {
+            titleIndex.query(query, result)
+            titles.forEachIndexed { position, title ->
+                assertEquals(
+                    "$title/$query",
+                    result.get(position),
+                    ChooseTitleIndex.matches(title, query)
+                )
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.ripple.ui.flowview.impl
+
+import org.junit.Assert.*
+import org.junit.Test
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/8 14:40
+ * Email: fanyafeng@live.cn
+ * Description: 标签尺寸缓存单测
+ */
+class FlowItemSizeCacheTest {
+
+    /**
+     * 宽度为下标乘10，全部测量完成
+     */
+    private fun measuredCache(count: Int): FlowItemSizeCache {
+        val cache = FlowItemSizeCache()
+        cache.reset(count)
+        for (position in 0 until count) {
+            cache.set(position, position * 10, 5)
+        }
+        return cache
+    }
+
+    private fun widths(cache: FlowItemSizeCache) = IntArray(cache.size()) { cache.getWidth(it) }
+
+    @Test
+    fun resetMarksAllDirty() {
+        val cache = FlowItemSizeCache()
+        cache.reset(3)
+        assertEquals(0, cache.nextDirty(0))
+        assertEquals(2, cache.nextDirty(2))
+        cache.set(0, 1, 1)
+        cache.set(1, 1, 1)
+        cache.set(2, 1, 1)
+        assertFalse(cache.hasDirty())
+        assertEquals(-1, cache.nextDirty(0))
+    }
+
+    @Test
+    fun insertOnlyNewItemsDirty() {
+        val cache = measuredCache(4)
+        cache.insert(1, 2)
+        assertEquals(6, cache.size())
+        assertArrayEquals(intArrayOf(0, 0, 0, 10, 20, 30), widths(cache))
+        assertEquals(1, cache.nextDirty(0))
+        assertEquals(2, cache.nextDirty(2))
+        assertEquals(-1, cache.nextDirty(3))
+    }
+
+    @Test
+    fun removeShiftsSizesAndDirty() {
+        val cache = measuredCache(5)
+        cache.markDirty(4, 1)
+        cache.remove(1, 2)
+        assertArrayEquals(intArrayOf(0, 30, 40), widths(cache))
+        assertEquals(2, cache.nextDirty(0))
+        assertFalse(cache.isDirty(1))
+    }
+
+    @Test
+    fun moveKeepsMeasuredSize() {
+        val cache = measuredCache(4)
+        cache.markDirty(0, 1)
+        cache.move(0, 3, 1)
+        assertArrayEquals(intArrayOf(10, 20, 30, 0), widths(cache))
+        assertEquals(3, cache.nextDirty(0))
+        cache.move(3, 1, 1)
+        assertArrayEquals(intArrayOf(10, 0, 20, 30), widths(cache))
+        assertEquals(1, cache.nextDirty(0))
+        assertEquals(-1, cache.nextDirty(2))
+    }
+
+    @Test
+    fun markDirtyClampedToSize() {
+        val cache = measuredCache(3)
+        cache.markDirty(2, 5)
+        assertEquals(2, cache.nextDirty(0))
+        assertEquals(-1, cache.nextDirty(3))
+    }
+
+    @Test
+    fun resetKeepsSizesAsEstimate() {
+        val cache = measuredCache(3)
+        cache.reset(5)
+        assertTrue(cache.isDirty(1))
+        //重新测量之前使用旧的尺寸
+        assertEquals(10, cache.getLayoutWidth(1))
+        //新增的标签使用平均尺寸
+        assertEquals(10, cache.getLayoutWidth(4))
+        assertEquals(5, cache.getLayoutHeight(4))
+        cache.set(4, 40, 8)
+        assertEquals(40, cache.getLayoutWidth(4))
+    }
+
+    @Test
+    fun unmeasuredWithoutSamplesIsZero() {
+        val cache = FlowItemSizeCache()
+        cache.reset(2)
+        assertEquals(0, cache.getLayoutWidth(0))
+        assertEquals(0, cache.getLayoutHeight(1))
+    }
+}
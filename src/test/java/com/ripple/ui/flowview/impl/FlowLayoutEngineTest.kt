@@ -0,0 +1,95 @@
+package com.ripple.ui.flowview.impl
+
+import com.ripple.ui.flowview.IFlowView
+import org.junit.Assert.*
+import org.junit.Test
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/7 15:20
+ * Email: fanyafeng@live.cn
+ * Description: 流式布局分行计算单测
+ */
+class FlowLayoutEngineTest {
+
+    @Test
+    fun breakLines() {
+        val engine = FlowLayoutEngine()
+        val widths = intArrayOf(40, 40, 40, 30, 100)
+        val heights = intArrayOf(10, 20, 10, 10, 15)
+        val positions = engine.compute(5, widths, heights, null, 100)
+
+        assertEquals(3, engine.getLineCount())
+        assertEquals(0, engine.getLineStart(0))
+        assertEquals(2, engine.getLineStart(1))
+        assertEquals(4, engine.getLineStart(2))
+        assertEquals(100, engine.getContentWidth())
+        assertEquals(20 + 10 + 15, engine.getContentHeight())
+
+        assertEquals(40, positions[2])
+        assertEquals(0, positions[3])
+        assertEquals(40, positions[6])
+        assertEquals(20, positions[7])
+        assertEquals(0, positions[8])
+        assertEquals(30, positions[9])
+    }
+
+    @Test
+    fun maxLine() {
+        val engine = FlowLayoutEngine()
+        val widths = intArrayOf(60, 60, 60, 60)
+        val heights = intArrayOf(10, 10, 10, 10)
+        engine.compute(4, widths, heights, null, 100, 2)
+
+        assertEquals(2, engine.getLineCount())
+        assertEquals(2, engine.getLaidOutEnd())
+        assertTrue(engine.isFull())
+        assertFalse(engine.isLaidOut(2))
+        assertEquals(20, engine.getContentHeight())
+    }
+
+    @Test
+    fun marginsAndGravity() {
+        val engine = FlowLayoutEngine()
+        val widths = intArrayOf(20, 20)
+        val heights = intArrayOf(10, 10)
+        val margins = intArrayOf(5, 2, 5, 2, 5, 2, 5, 2)
+        val positions = engine.compute(
+            2, widths, heights, margins, 100, FlowLayoutEngine.UNLIMITED_LINE,
+            IFlowView.FlowViewGravity.RIGHT
+        )
+
+        assertEquals(1, engine.getLineCount())
+        assertEquals(60, engine.getLineWidth(0))
+        assertEquals(14, engine.getLineHeight(0))
+        assertEquals(45, positions[0])
+        assertEquals(2, positions[1])
+        assertEquals(75, positions[2])
+    }
+
+    @Test
+    fun skippedChildren() {
+        val engine = FlowLayoutEngine()
+        engine.begin(100)
+        engine.add(50, 10)
+        engine.skip()
+        engine.add(60, 10)
+        engine.end()
+        engine.layout(IFlowView.FlowViewGravity.LEFT, 100, 0, 0)
+
+        assertEquals(2, engine.getLineCount())
+        assertFalse(engine.isLaidOut(1))
+        assertEquals(2, engine.getLineStart(1))
+        assertEquals(0, engine.getChildLeft(2))
+        assertEquals(10, engine.getChildTop(2))
+    }
+
+    @Test
+    fun oversizedChildKeepsItsOwnLine() {
+        val engine = FlowLayoutEngine()
+        engine.compute(2, intArrayOf(150, 20), intArrayOf(10, 10), null, 100)
+
+        assertEquals(2, engine.getLineCount())
+        assertEquals(150, engine.getContentWidth())
+    }
+}
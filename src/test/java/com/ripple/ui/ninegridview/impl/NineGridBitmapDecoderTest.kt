@@ -0,0 +1,39 @@
+package com.ripple.ui.ninegridview.impl
+
+import org.junit.Assert.*
+import org.junit.Test
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/18 16:00
+ * Email: fanyafeng@live.cn
+ * Description: 采样率计算单测
+ */
+class NineGridBitmapDecoderTest {
+
+    @Test
+    fun sampledSizeNotSmallerThanTarget() {
+        //4000x3000的原图显示在300x300的格子中
+        assertEquals(8, NineGridBitmapDecoder.calculateInSampleSize(4000, 3000, 300, 300))
+        assertEquals(4, NineGridBitmapDecoder.calculateInSampleSize(4000, 3000, 500, 500))
+    }
+
+    @Test
+    fun smallSourceNotSampled() {
+        assertEquals(1, NineGridBitmapDecoder.calculateInSampleSize(200, 200, 300, 300))
+        assertEquals(1, NineGridBitmapDecoder.calculateInSampleSize(500, 500, 300, 300))
+    }
+
+    @Test
+    fun unknownSizeNotSampled() {
+        assertEquals(1, NineGridBitmapDecoder.calculateInSampleSize(4000, 3000, 0, 0))
+        assertEquals(1, NineGridBitmapDecoder.calculateInSampleSize(0, 0, 300, 300))
+    }
+
+    @Test
+    fun sampledSizeRoundsUp() {
+        assertEquals(375, NineGridBitmapDecoder.calculateSampledSize(3000, 8))
+        assertEquals(501, NineGridBitmapDecoder.calculateSampledSize(4001, 8))
+        assertEquals(4000, NineGridBitmapDecoder.calculateSampledSize(4000, 1))
+    }
+}
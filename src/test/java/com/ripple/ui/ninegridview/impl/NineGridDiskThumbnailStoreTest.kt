@@ -0,0 +1,113 @@
+package com.ripple.ui.ninegridview.impl
+
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+
+/**
+ * Author: fanyafeng
+ * Data: 2020/9/19 11:30
+ * Email: fanyafeng@live.cn
+ * Description: 缩略图文件名，写入和淘汰单测
+ */
+class NineGridDiskThumbnailStoreTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private fun key(name: String) = NineGridDiskThumbnailStore.createKey(name, 1000L, 300, 300)
+
+    /**
+     * 写入length个字节，最后使用时间为lastModified
+     */
+    private fun put(
+        store: NineGridDiskThumbnailStore,
+        directory: File,
+        name: String,
+        length: Int,
+        lastModified: Long
+    ): File {
+        val file = File(directory, key(name))
+        assertTrue(store.putFile(file) {
+            it.write(ByteArray(length))
+            true
+        })
+        file.setLastModified(lastModified)
+        return file
+    }
+
+    @Test
+    fun sameSourceSameKey() {
+        val key = NineGridDiskThumbnailStore.createKey("/sdcard/DCIM/a.jpg", 1000L, 300, 300)
+        assertEquals(key, NineGridDiskThumbnailStore.createKey("/sdcard/DCIM/a.jpg", 1000L, 300, 300))
+        assertEquals(32, key.length)
+        assertTrue(key.all { it in '0'..'9' || it in 'a'..'f' })
+    }
+
+    @Test
+    fun modifiedOrResizedSourceNewKey() {
+        val key = NineGridDiskThumbnailStore.createKey("/sdcard/DCIM/a.jpg", 1000L, 300, 300)
+        assertNotEquals(key, NineGridDiskThumbnailStore.createKey("/sdcard/DCIM/a.jpg", 2000L, 300, 300))
+        assertNotEquals(key, NineGridDiskThumbnailStore.createKey("/sdcard/DCIM/a.jpg", 1000L, 600, 600))
+        assertNotEquals(key, NineGridDiskThumbnailStore.createKey("/sdcard/DCIM/b.jpg", 1000L, 300, 300))
+    }
+
+    @Test
+    fun trimRemovesLeastRecentlyUsed() {
+        val directory = File(folder.root, NineGridDiskThumbnailStore.DIRECTORY_NAME)
+        val store = NineGridDiskThumbnailStore(100L)
+        val first = put(store, directory, "a", 40, 1000L)
+        val second = put(store, directory, "b", 40, 2000L)
+        //读取时会更新最后使用时间
+        first.setLastModified(3000L)
+        val third = put(store, directory, "c", 40, 4000L)
+        assertTrue(first.exists())
+        assertFalse(second.exists())
+        assertTrue(third.exists())
+        assertEquals(80L, store.getSize(directory))
+    }
+
+    @Test
+    fun orphanTempFilesDeletedOnFirstUse() {
+        val directory = folder.newFolder(NineGridDiskThumbnailStore.DIRECTORY_NAME)
+        val orphan = File(directory, "a1234.tmp")
+        orphan.writeBytes(ByteArray(10))
+        File(directory, key("b")).writeBytes(ByteArray(30))
+        val store = NineGridDiskThumbnailStore()
+        assertEquals(30L, store.getSize(directory))
+        assertFalse(orphan.exists())
+    }
+
+    @Test
+    fun failedWriteLeavesNoFile() {
+        val directory = File(folder.root, NineGridDiskThumbnailStore.DIRECTORY_NAME)
+        val store = NineGridDiskThumbnailStore()
+        val file = File(directory, key("a"))
+        assertFalse(store.putFile(file) {
+            it.write(ByteArray(20))
+            false
+        })
+        assertFalse(store.putFile(file) {
+            it.write(ByteArray(20))
+            throw IllegalStateException()
+        })
+        assertFalse(file.exists())
+        assertEquals(0, directory.listFiles()!!.size)
+        assertEquals(0L, store.getSize(directory))
+    }
+
+    @Test
+    fun overwriteAndDeleteUpdateSize() {
+        val directory = File(folder.root, NineGridDiskThumbnailStore.DIRECTORY_NAME)
+        val store = NineGridDiskThumbnailStore()
+        put(store, directory, "a", 40, 1000L)
+        val file = put(store, directory, "a", 25, 2000L)
+        assertEquals(25L, store.getSize(directory))
+        //读取时文件损坏会删除
+        store.deleteFile(file)
+        assertFalse(file.exists())
+        assertEquals(0L, store.getSize(directory))
+    }
+}